@@ -0,0 +1,60 @@
+package com.eric.GobangGameServer;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fixed-depth search of a middle-game position with an empty
+ * transposition table
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 20, batchSize = 1)
+@Fork(1)
+public class AiBenchmark {
+    private static final int[][] OPENING = {
+            {7, 7}, {7, 8}, {8, 8}, {6, 6}, {8, 6}, {9, 5}, {8, 7}, {8, 9}, {6, 8}, {9, 7}
+    };
+
+    @Param({"4", "6", "8"})
+    public int depth;
+
+    private final byte[] cells = new byte[GameBoard.CELLS];
+    private GomokuAI ai;
+
+    @Setup(Level.Trial)
+    public void placeStones() {
+        for (int i = 0; i < OPENING.length; i++) {
+            cells[OPENING[i][0] * GameBoard.SIZE + OPENING[i][1]] = (byte) (i % 2 == 0 ? GomokuAI.BLACK : GomokuAI.WHITE);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void freshTable() {
+        ai = new GomokuAI(1, 1, 1, TimeUnit.SECONDS, 20);
+    }
+
+    @TearDown(Level.Invocation)
+    public void shutdown() {
+        ai.shutdown();
+    }
+
+    @Benchmark
+    public int search() {
+        return ai.searchToDepth(cells, GomokuAI.BLACK, depth);
+    }
+}
@@ -0,0 +1,37 @@
+package com.eric.GobangGameServer;
+
+/**
+ * Builds a server that is never started and registers in-memory players on it
+ */
+final class BenchmarkSupport {
+
+    private BenchmarkSupport() {
+    }
+
+    static GameServer newServer() {
+        return new GameServer(newConfig());
+    }
+
+    static ServerConfig newConfig() {
+        ServerConfig config = new ServerConfig(false);
+        config.setMaxPlayers(1_000_000);
+        // Benchmarks publish lobby updates themselves and never idle out
+        config.getProperties().setProperty("server.lobby_update_window_ms", "3600000");
+        config.getProperties().setProperty("server.heartbeat_interval", "0");
+        config.getProperties().setProperty("server.timeout", "0");
+        // Session work runs inline so each call has finished when it returns
+        config.setSessionWorkers(0);
+        // Benchmarks call the same commands back to back; measure the handlers, not the rate limits
+        config.setChatRateLimit(0);
+        config.setListSessionsRateLimit(0);
+        return config;
+    }
+
+    static Player connect(GameServer server, String name, boolean isHost) {
+        return server.completeHandshake(server.nextPlayerId(), new InMemoryConnection(), "PLAYER_INFO:" + name + ":" + isHost);
+    }
+
+    static OutboundPolicy defaultPolicy() {
+        return OutboundPolicy.fromConfig(new ServerConfig(false));
+    }
+}
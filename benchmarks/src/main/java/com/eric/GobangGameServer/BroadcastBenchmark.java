@@ -0,0 +1,58 @@
+package com.eric.GobangGameServer;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GameSession.broadcast and spectator fan-out through the outbound queues into in-memory sockets
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({"10", "1000"})
+    public int spectators;
+
+    private GameSession session;
+
+    @Setup
+    public void setup() {
+        OutboundPolicy policy = BenchmarkSupport.defaultPolicy();
+        Player black = new Player(1, "black", new InMemoryConnection(), true, policy);
+        Player white = new Player(2, "white", new InMemoryConnection(), false, policy);
+        session = new GameSession(1, black, white);
+
+        for (int i = 0; i < spectators; i++) {
+            session.addSpectator(new Player(3 + i, "watcher" + i, new InMemoryConnection(), false, policy));
+        }
+    }
+
+    @Benchmark
+    public GameSession broadcastTurnChange() {
+        session.broadcast("TURN_CHANGE:white");
+        return session;
+    }
+
+    /**
+     * One move event encoded once and queued for every spectator
+     */
+    @Benchmark
+    public GameSession spectatorMove() {
+        session.broadcastToSpectators("SPECTATE_MOVE:12:black:7,8");
+        return session;
+    }
+}
@@ -0,0 +1,41 @@
+package com.eric.GobangGameServer;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Connection that writes synchronously into a byte counter, so benchmarks
+ * measure the server code rather than the loopback stack
+ */
+final class InMemoryConnection implements Connection {
+    private static final Executor DIRECT = Runnable::run;
+
+    private long charsWritten;
+
+    @Override
+    public void write(CharSequence lines) {
+        charsWritten += lines.length();
+    }
+
+    @Override
+    public void writeFrame(Frame frame) {
+        charsWritten += frame.length();
+    }
+
+    @Override
+    public Executor getWriteExecutor() {
+        return DIRECT;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return "in-memory";
+    }
+
+    long getCharsWritten() {
+        return charsWritten;
+    }
+}
@@ -0,0 +1,94 @@
+package com.eric.GobangGameServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * LIST_SESSIONS and lobby fan-out with a populated lobby
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LobbyBenchmark {
+    private static final int IDLE_PLAYERS = 100;
+
+    @Param({"10", "1000", "10000"})
+    public int sessions;
+
+    private final Command command = new Command();
+    private GameServer server;
+    private final List<Player> hosts = new ArrayList<>();
+    private final List<Player> idle = new ArrayList<>();
+    private Player watcher;
+
+    @Setup
+    public void setup() {
+        server = BenchmarkSupport.newServer();
+
+        for (int i = 0; i < sessions; i++) {
+            Player host = BenchmarkSupport.connect(server, "host" + i, true);
+            server.processClientMessage(host, "CREATE_SESSION:room" + i, command);
+            hosts.add(host);
+        }
+        for (int i = 0; i < IDLE_PLAYERS; i++) {
+            Player player = BenchmarkSupport.connect(server, "idle" + i, false);
+            server.processClientMessage(player, "LIST_SESSIONS", command);
+            idle.add(player);
+        }
+        server.publishLobbyUpdate();
+
+        watcher = idle.get(0);
+    }
+
+    @Benchmark
+    public Command listSessions() {
+        server.processClientMessage(watcher, "LIST_SESSIONS", command);
+        return command;
+    }
+
+    /**
+     * One host creating a session and leaving again, each change published to all idle players
+     */
+    @Benchmark
+    public Command sessionChurn() {
+        Player host = BenchmarkSupport.connect(server, "churn", true);
+        server.processClientMessage(host, "CREATE_SESSION:churn", command);
+        server.publishLobbyUpdate();
+        server.processClientMessage(host, "DISCONNECT", command);
+        server.publishLobbyUpdate();
+        return command;
+    }
+
+    /**
+     * The old broadcastSessionList: rebuild the full list and send it to every idle player
+     */
+    @Benchmark
+    public int legacyFullBroadcast() {
+        StringBuilder sessionList = new StringBuilder("SESSION_LIST_UPDATE:");
+        for (Player host : hosts) {
+            sessionList.append(GameSession.formatId(host.getCurrentSessionId())).append(",")
+                    .append(host.getPlayerName()).append(";");
+        }
+        sessionList.setLength(sessionList.length() - 1);
+
+        for (Player player : idle) {
+            player.getConnection().send(sessionList.toString());
+        }
+        return sessionList.length();
+    }
+}
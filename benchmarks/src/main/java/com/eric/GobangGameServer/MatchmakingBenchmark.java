@@ -0,0 +1,61 @@
+package com.eric.GobangGameServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One matchmaking tick over a freshly filled queue with ratings spread
+ * across 800-2400
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 20, batchSize = 1)
+@Fork(1)
+public class MatchmakingBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int queued;
+
+    private final List<Player> players = new ArrayList<>();
+    private Matchmaker matchmaker;
+
+    @Setup(Level.Trial)
+    public void createPlayers() {
+        OutboundPolicy policy = BenchmarkSupport.defaultPolicy();
+        for (int i = 0; i < queued; i++) {
+            players.add(new Player(i + 1, "queued" + i, new InMemoryConnection(), false, policy));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void fillQueue() {
+        matchmaker = new Matchmaker(25, 50, 25, 400, (first, second) -> { });
+        Random random = new Random(42);
+        for (Player player : players) {
+            matchmaker.setRating(player.getPlayerName(), 800 + random.nextInt(1600));
+            matchmaker.enqueue(player);
+        }
+    }
+
+    @Benchmark
+    public long tick() {
+        matchmaker.tick();
+        return matchmaker.getMatchCount();
+    }
+}
@@ -0,0 +1,83 @@
+package com.eric.GobangGameServer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * handleMove: validation, board update, win check, forwarding and turn switch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark {
+
+    /**
+     * Whether accepted moves are appended to the move journal
+     */
+    @Param({"false", "true"})
+    public boolean journal;
+
+    /**
+     * Rule variant, which decides how each move is checked for a win or a foul
+     */
+    @Param({"freestyle", "renju"})
+    public String rules;
+
+    private final Command command = new Command();
+    private GameServer server;
+    private Player host;
+    private Player guest;
+    private String[] moves;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        ServerConfig config = BenchmarkSupport.newConfig();
+        if (journal) {
+            config.setJournalDir(Files.createTempDirectory("gobang-journal").toString());
+        }
+        server = new GameServer(config);
+        host = BenchmarkSupport.connect(server, "host", true);
+        guest = BenchmarkSupport.connect(server, "guest", false);
+
+        server.processClientMessage(host, "CREATE_SESSION:bench:" + rules, command);
+        server.processClientMessage(guest, "JOIN_SESSION:" + GameSession.formatId(host.getCurrentSessionId()), command);
+
+        moves = LoadGenerator.drawlessGame();
+        next = 0;
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Benchmark
+    public int move() {
+        Player mover = (next & 1) == 0 ? host : guest;
+        server.processClientMessage(mover, moves[next], command);
+
+        if (++next == moves.length) {
+            server.processClientMessage(host, "RESTART", command);
+            server.processClientMessage(guest, "RESTART", command);
+            next = 0;
+        }
+        return next;
+    }
+}
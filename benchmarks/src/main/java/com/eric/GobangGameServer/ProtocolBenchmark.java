@@ -0,0 +1,73 @@
+package com.eric.GobangGameServer;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Inbound line parsing as done by processClientMessage, against the old split-based parse
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtocolBenchmark {
+
+    @Param({"MOVE:7,8", "CHAT:good game", "LIST_SESSIONS", "JOIN_SESSION:S42"})
+    public String line;
+
+    private final Command command = new Command();
+    private GameServer server;
+    private Player player;
+
+    @Setup
+    public void setup() {
+        server = BenchmarkSupport.newServer();
+        player = BenchmarkSupport.connect(server, "bench", false);
+    }
+
+    @Benchmark
+    public Command decode() {
+        return CommandDecoder.decode(line, command);
+    }
+
+    /**
+     * The pre-decoder parse: split on ':' then switch on the verb string
+     */
+    @Benchmark
+    public int legacySplit() {
+        String[] parts = line.split(":", 2);
+        String data = parts.length > 1 ? parts[1] : "";
+
+        switch (parts[0]) {
+            case "MOVE":
+                String[] coords = data.split(",");
+                return Integer.parseInt(coords[0]) + Integer.parseInt(coords[1]);
+            case "CHAT":
+            case "JOIN_SESSION":
+                return data.length();
+            default:
+                return parts[0].length();
+        }
+    }
+
+    /**
+     * Full decode and dispatch of a command that only replies to the sender
+     */
+    @Benchmark
+    public Command processGetPlayerInfo() {
+        server.processClientMessage(player, "GET_PLAYER_INFO", command);
+        return command;
+    }
+}
@@ -0,0 +1,80 @@
+package com.eric.GobangGameServer;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connection admission for the accept loop. A slot is claimed with an atomic
+ * increment before the connection is handed to another thread, so concurrent
+ * handshakes cannot push the server past its limit. The slot is released
+ * once, when the connection closes. An optional cap limits how many
+ * connections one remote address may hold at a time.
+ */
+public class AdmissionControl {
+
+    /**
+     * Outcome of an admission attempt
+     */
+    public enum Decision {
+        ADMITTED,
+        SERVER_FULL,
+        ADDRESS_LIMIT
+    }
+
+    private final int maxConnections;
+    private final int maxPerAddress;
+    private final AtomicInteger admitted = new AtomicInteger();
+    private final ConcurrentHashMap<InetAddress, Integer> perAddress = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxPerAddress connections allowed per remote address, 0 for no cap
+     */
+    public AdmissionControl(int maxConnections, int maxPerAddress) {
+        this.maxConnections = maxConnections;
+        this.maxPerAddress = maxPerAddress;
+    }
+
+    /**
+     * Claim a slot for a new connection; every ADMITTED result must be
+     * paired with one {@link #release}
+     */
+    public Decision tryAdmit(InetAddress address) {
+        if (admitted.incrementAndGet() > maxConnections) {
+            admitted.decrementAndGet();
+            return Decision.SERVER_FULL;
+        }
+
+        if (maxPerAddress > 0 && perAddress.merge(address, 1, Integer::sum) > maxPerAddress) {
+            releaseAddress(address);
+            admitted.decrementAndGet();
+            return Decision.ADDRESS_LIMIT;
+        }
+        return Decision.ADMITTED;
+    }
+
+    public void release(InetAddress address) {
+        if (maxPerAddress > 0) {
+            releaseAddress(address);
+        }
+        admitted.decrementAndGet();
+    }
+
+    private void releaseAddress(InetAddress address) {
+        perAddress.computeIfPresent(address, (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * Connections currently holding a slot, including those still handshaking
+     */
+    public int getAdmitted() {
+        return admitted.get();
+    }
+
+    /**
+     * Remote addresses with at least one open connection; only tracked when a per-address cap is set
+     */
+    public int getAddressCount() {
+        return perAddress.size();
+    }
+}
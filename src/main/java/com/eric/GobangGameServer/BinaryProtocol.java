@@ -0,0 +1,304 @@
+package com.eric.GobangGameServer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact framing for clients that send "PLAYER_INFO:name:isHost:binary".
+ * Every frame is a varint length followed by that many bytes: a one-byte
+ * opcode and its fields.
+ *
+ * Client to server, the opcode is {@link Opcode#getCode()}. MOVE carries
+ * row and column as one unsigned byte each; commands with a text argument
+ * carry it as UTF-8; the rest carry nothing. Frames decode into the same
+ * {@link Command} as text lines, so one set of handlers serves both.
+ *
+ * Server to client, moves and turn changes have fixed-width frames and
+ * every other message travels as its text line in a LINE frame, so the
+ * server keeps one message model and only the encoding differs.
+ */
+public final class BinaryProtocol {
+    /**
+     * Server frame holding one UTF-8 protocol line without its newline
+     */
+    public static final int LINE = 0x00;
+    /**
+     * Server frame for the opponent's move: row byte, column byte
+     */
+    public static final int MOVE = 0x01;
+    /**
+     * Server frame for a turn change: 0 black to move, 1 white
+     */
+    public static final int TURN_CHANGE = 0x02;
+
+    // Opcode plus fields; a frame must fit in a connection's read buffer
+    static final int MAX_FRAME_LENGTH = 4096;
+
+    private static final String MOVE_PREFIX = MessageProtocol.MAKE_MOVE + ":";
+
+    private BinaryProtocol() {
+    }
+
+    /**
+     * Decode one client frame at the buffer's position into the command and
+     * move past it. Returns false, consuming nothing, while the frame is
+     * still incomplete.
+     */
+    public static boolean decode(ByteBuffer in, Command command) throws ProtocolException {
+        int start = in.position();
+        int length = 0;
+        int shift = 0;
+        while (true) {
+            if (!in.hasRemaining()) {
+                in.position(start);
+                return false;
+            }
+            int b = in.get() & 0xFF;
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+            if (shift > 14) {
+                throw new ProtocolException("Frame length prefix too long");
+            }
+        }
+        checkLength(length);
+
+        if (in.remaining() < length) {
+            in.position(start);
+            return false;
+        }
+        decodePayload(in, length, command);
+        return true;
+    }
+
+    /**
+     * Read one client frame from a blocking stream into the command, using
+     * scratch for the payload. Returns false at end of stream.
+     */
+    public static boolean read(InputStream in, byte[] scratch, Command command) throws IOException {
+        int length = readVarint(in);
+        if (length < 0) {
+            return false;
+        }
+        checkLength(length);
+        if (in.readNBytes(scratch, 0, length) < length) {
+            throw new EOFException("Stream ended inside a frame");
+        }
+        decodePayload(ByteBuffer.wrap(scratch, 0, length), length, command);
+        return true;
+    }
+
+    private static void checkLength(int length) throws ProtocolException {
+        if (length == 0 || length > MAX_FRAME_LENGTH) {
+            throw new ProtocolException("Invalid frame length " + length);
+        }
+    }
+
+    private static void decodePayload(ByteBuffer in, int length, Command command) {
+        int end = in.position() + length;
+        int code = in.get() & 0xFF;
+        Opcode opcode = Opcode.fromCode(code);
+        String verb = opcode != Opcode.UNKNOWN ? opcode.getVerb() : "#" + code;
+
+        if (opcode == Opcode.MOVE) {
+            command.setDecoded(opcode, verb, "");
+            if (end - in.position() == 2) {
+                command.setMove(in.get() & 0xFF, in.get() & 0xFF);
+            }
+        } else if (in.position() < end) {
+            byte[] text = new byte[end - in.position()];
+            in.get(text);
+            command.setDecoded(opcode, verb, new String(text, StandardCharsets.UTF_8));
+        } else {
+            command.setDecoded(opcode, verb, "");
+        }
+        in.position(end);
+    }
+
+    /**
+     * Read an unsigned varint, or -1 if the stream ends before its first byte
+     */
+    static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift <= 14; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0) {
+                    return -1;
+                }
+                throw new EOFException("Stream ended inside a length prefix");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ProtocolException("Frame length prefix too long");
+    }
+
+    /**
+     * Encode a client command as a frame, for clients and tools that build
+     * commands through {@link CommandDecoder}
+     */
+    public static byte[] encodeCommand(Command command) {
+        byte[] argument = command.getOpcode() == Opcode.MOVE ? null
+                : command.argument().getBytes(StandardCharsets.UTF_8);
+        int length = 1 + (argument == null ? 2 : argument.length);
+        ByteBuffer out = ByteBuffer.allocate(varintLength(length) + length);
+        putVarint(out, length);
+        out.put((byte) command.getOpcode().getCode());
+        if (argument == null) {
+            out.put((byte) command.getRow()).put((byte) command.getCol());
+        } else {
+            out.put(argument);
+        }
+        return out.array();
+    }
+
+    /**
+     * Bytes needed to encode newline-terminated protocol lines as frames
+     */
+    public static int encodedLength(CharSequence lines) {
+        int bytes = 0;
+        int start = 0;
+        int length = lines.length();
+        for (int i = 0; i < length; i++) {
+            if (lines.charAt(i) == '\n') {
+                bytes += lineLength(lines, start, i);
+                start = i + 1;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Encode newline-terminated protocol lines as frames at the buffer's
+     * position, which must have {@link #encodedLength} bytes of room
+     */
+    public static void encode(CharSequence lines, ByteBuffer out) {
+        int start = 0;
+        int length = lines.length();
+        for (int i = 0; i < length; i++) {
+            if (lines.charAt(i) == '\n') {
+                encodeLine(lines, start, i, out);
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * One line, without its newline, as a frame
+     */
+    public static byte[] encodeLine(String line) {
+        byte[] bytes = new byte[lineLength(line, 0, line.length())];
+        encodeLine(line, 0, line.length(), ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    private static int lineLength(CharSequence text, int start, int end) {
+        if (moveCell(text, start, end) >= 0) {
+            return 4;
+        }
+        if (turnColor(text, start, end) >= 0) {
+            return 3;
+        }
+        int length = 1 + BufferPool.encodedLength(text, start, end);
+        return varintLength(length) + length;
+    }
+
+    private static void encodeLine(CharSequence text, int start, int end, ByteBuffer out) {
+        int cell = moveCell(text, start, end);
+        if (cell >= 0) {
+            out.put((byte) 3).put((byte) MOVE).put((byte) (cell >> 8)).put((byte) cell);
+            return;
+        }
+        int color = turnColor(text, start, end);
+        if (color >= 0) {
+            out.put((byte) 2).put((byte) TURN_CHANGE).put((byte) color);
+            return;
+        }
+        putVarint(out, 1 + BufferPool.encodedLength(text, start, end));
+        out.put((byte) LINE);
+        BufferPool.putUtf8(text, start, end, out);
+    }
+
+    /**
+     * row << 8 | col for a "MOVE:row,col" line whose coordinates fit a byte, otherwise -1
+     */
+    private static int moveCell(CharSequence text, int start, int end) {
+        if (!startsWith(text, start, end, MOVE_PREFIX)) {
+            return -1;
+        }
+        int argStart = start + MOVE_PREFIX.length();
+        for (int comma = argStart; comma < end; comma++) {
+            if (text.charAt(comma) == ',') {
+                int row = CommandDecoder.parseInt(text, argStart, comma);
+                int col = CommandDecoder.parseInt(text, comma + 1, end);
+                return row >= 0 && row < 256 && col >= 0 && col < 256 ? row << 8 | col : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 0 for "TURN_CHANGE:black", 1 for "TURN_CHANGE:white", otherwise -1
+     */
+    private static int turnColor(CharSequence text, int start, int end) {
+        if (end - start != MessageProtocol.TURN_CHANGE_BLACK.length()) {
+            return -1;
+        }
+        if (startsWith(text, start, end, MessageProtocol.TURN_CHANGE_BLACK)) {
+            return 0;
+        }
+        return startsWith(text, start, end, MessageProtocol.TURN_CHANGE_WHITE) ? 1 : -1;
+    }
+
+    /**
+     * The text protocol line for a server frame's payload (opcode first), as
+     * a client would show or log it
+     */
+    public static String toLine(byte[] payload, int length) {
+        switch (payload[0]) {
+            case MOVE:
+                return MessageProtocol.formatMoveMessage(payload[1] & 0xFF, payload[2] & 0xFF);
+            case TURN_CHANGE:
+                return MessageProtocol.formatTurnChange(payload[1] == 0);
+            default:
+                return new String(payload, 1, length - 1, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static boolean startsWith(CharSequence text, int start, int end, String prefix) {
+        if (end - start < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bytes {@link #putVarint} writes for a non-negative value; server LINE
+     * frames are not capped, so this covers every int
+     */
+    static int varintLength(int value) {
+        return value < 0x80 ? 1 : value < 0x4000 ? 2 : value < 0x200000 ? 3 : value < 0x10000000 ? 4 : 5;
+    }
+
+    static void putVarint(ByteBuffer out, int value) {
+        while (value >= 0x80) {
+            out.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+}
@@ -0,0 +1,108 @@
+package com.eric.GobangGameServer;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Connection of the computer opponent. The bot plays white and reads the
+ * same protocol lines a client would. It keeps its own copy of the board
+ * from MOVE lines and starts a search on TURN_CHANGE:white. The chosen move
+ * goes back through the normal command path, so the server validates it
+ * like any other move. It accepts every restart request.
+ */
+public class BotConnection implements Connection {
+    public static final String BOT_NAME = "Computer";
+
+    private static final Executor DIRECT = Runnable::run;
+
+    private final GomokuAI ai;
+    private final byte[] cells = new byte[GameBoard.CELLS];
+    private Consumer<String> commands;
+    // Bumped when the board resets or the game ends, so late search results are discarded
+    private int generation;
+
+    public BotConnection(GomokuAI ai) {
+        this.ai = ai;
+    }
+
+    /**
+     * Where the bot's own commands go, typically the server's dispatcher
+     */
+    public void setCommandSink(Consumer<String> commands) {
+        this.commands = commands;
+    }
+
+    @Override
+    public void write(CharSequence lines) {
+        int start = 0;
+        for (int i = 0; i < lines.length(); i++) {
+            if (lines.charAt(i) == '\n') {
+                handle(lines.subSequence(start, i).toString());
+                start = i + 1;
+            }
+        }
+    }
+
+    private void handle(String line) {
+        if (line.startsWith("MOVE:")) {
+            int comma = line.indexOf(',');
+            int row = Integer.parseInt(line.substring(5, comma));
+            int col = Integer.parseInt(line.substring(comma + 1));
+            synchronized (this) {
+                cells[row * GameBoard.SIZE + col] = GomokuAI.BLACK;
+            }
+        } else if (line.equals("TURN_CHANGE:white")) {
+            think();
+        } else if (line.startsWith(MessageProtocol.RESTART_REQUEST)) {
+            commands.accept(MessageProtocol.REQUEST_RESTART);
+        } else if (line.equals(MessageProtocol.RESTART_ACCEPTED)) {
+            synchronized (this) {
+                Arrays.fill(cells, (byte) GomokuAI.EMPTY);
+                generation++;
+            }
+        } else if (line.startsWith(MessageProtocol.GAME_OVER)
+                || line.equals(MessageProtocol.OPPONENT_DISCONNECTED)) {
+            synchronized (this) {
+                generation++;
+            }
+        }
+    }
+
+    private void think() {
+        byte[] position;
+        int searchGeneration;
+        synchronized (this) {
+            position = cells.clone();
+            searchGeneration = generation;
+        }
+        ai.chooseMove(position, GomokuAI.WHITE, cell -> play(searchGeneration, cell));
+    }
+
+    private void play(int searchGeneration, int cell) {
+        synchronized (this) {
+            if (searchGeneration != generation || cell < 0) {
+                return;
+            }
+            cells[cell] = GomokuAI.WHITE;
+        }
+        commands.accept(MessageProtocol.MAKE_MOVE + ":" + cell / GameBoard.SIZE + "," + cell % GameBoard.SIZE);
+    }
+
+    @Override
+    public Executor getWriteExecutor() {
+        return DIRECT;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            generation++;
+        }
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return "bot";
+    }
+}
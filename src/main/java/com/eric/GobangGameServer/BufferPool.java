@@ -0,0 +1,315 @@
+package com.eric.GobangGameServer;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared pool of direct byte buffers for socket I/O, in power-of-two size
+ * classes from 256 bytes to 64 KB. A connection leases a buffer for one read
+ * or one write and hands it back when done, so idle connections hold no
+ * buffers and the socket reads and writes straight from native memory
+ * instead of through a temporary copy.
+ *
+ * Released buffers are kept for reuse up to a cap on idle bytes; beyond it
+ * they are dropped for the garbage collector. A sample of leases is watched
+ * for leaks: if one becomes unreachable without being released, it is
+ * counted and logged.
+ */
+public class BufferPool {
+    private static final Logger logger = LoggerFactory.getLogger(BufferPool.class);
+    private static final int MIN_SHIFT = 8;
+    private static final int MAX_SHIFT = 16;
+    static final int MAX_POOLED_SIZE = 1 << MAX_SHIFT;
+
+    private final Queue<ByteBuffer>[] free;
+    private final long maxIdleBytes;
+    private final int leakSampling;
+    private final Cleaner cleaner;
+
+    private final AtomicLong idleBytes = new AtomicLong();
+    private final LongAdder inUseBytes = new LongAdder();
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder acquires = new LongAdder();
+    private final LongAdder allocations = new LongAdder();
+    private final LongAdder oversize = new LongAdder();
+    private final LongAdder discards = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder doubleReleases = new LongAdder();
+
+    /**
+     * A leased buffer; release it exactly once, after which the buffer must
+     * not be touched
+     */
+    public static final class Lease {
+        private final BufferPool pool;
+        private final int sizeClass;
+        private ByteBuffer buffer;
+        private LeakCheck leakCheck;
+
+        private Lease(BufferPool pool, ByteBuffer buffer, int sizeClass) {
+            this.pool = pool;
+            this.buffer = buffer;
+            this.sizeClass = sizeClass;
+        }
+
+        public ByteBuffer buffer() {
+            return buffer;
+        }
+
+        public void release() {
+            ByteBuffer released = buffer;
+            if (released == null) {
+                if (pool != null) {
+                    pool.doubleReleases.increment();
+                }
+                return;
+            }
+            buffer = null;
+            if (pool != null) {
+                pool.recycle(released, sizeClass, leakCheck);
+            }
+        }
+    }
+
+    /**
+     * Cleaning action of a sampled lease. Holds only the bookkeeping, never
+     * the lease, so the lease can become unreachable.
+     */
+    private static final class LeakCheck implements Runnable {
+        private final BufferPool pool;
+        private final int capacity;
+        private volatile boolean released;
+        private Cleaner.Cleanable cleanable;
+
+        LeakCheck(BufferPool pool, int capacity) {
+            this.pool = pool;
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void run() {
+            if (!released) {
+                pool.onLeak(capacity);
+            }
+        }
+    }
+
+    /**
+     * @param maxIdleBytes released bytes kept for reuse across all size classes
+     * @param leakSampling watch one lease in this many for leaks, 0 to disable
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public BufferPool(long maxIdleBytes, int leakSampling) {
+        this.maxIdleBytes = Math.max(0, maxIdleBytes);
+        this.leakSampling = Math.max(0, leakSampling);
+        this.cleaner = this.leakSampling > 0 ? Cleaner.create() : null;
+        this.free = new Queue[MAX_SHIFT - MIN_SHIFT + 1];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    public static BufferPool fromConfig(ServerConfig config) {
+        return new BufferPool(config.getBufferPoolMaxIdleBytes(), config.getBufferPoolLeakSampling());
+    }
+
+    /**
+     * Wrap a buffer that is not the pool's, such as a shared frame, so it can
+     * sit in the same write queue; releasing it does nothing
+     */
+    public static Lease unpooled(ByteBuffer buffer) {
+        return new Lease(null, buffer, -1);
+    }
+
+    /**
+     * Lease a cleared buffer of at least the given capacity. Requests above
+     * the largest class get a one-off heap buffer.
+     */
+    public Lease acquire(int capacity) {
+        acquires.increment();
+        if (capacity > MAX_POOLED_SIZE) {
+            oversize.increment();
+            return new Lease(null, ByteBuffer.allocate(capacity), -1);
+        }
+
+        int sizeClass = sizeClass(capacity);
+        int size = 1 << (sizeClass + MIN_SHIFT);
+        ByteBuffer buffer = free[sizeClass].poll();
+        if (buffer != null) {
+            idleBytes.addAndGet(-size);
+            buffer.clear();
+        } else {
+            allocations.increment();
+            buffer = ByteBuffer.allocateDirect(size);
+        }
+        leases.increment();
+        inUseBytes.add(size);
+
+        Lease lease = new Lease(this, buffer, sizeClass);
+        if (leakSampling > 0 && ThreadLocalRandom.current().nextInt(leakSampling) == 0) {
+            LeakCheck check = new LeakCheck(this, size);
+            check.cleanable = cleaner.register(lease, check);
+            lease.leakCheck = check;
+        }
+        return lease;
+    }
+
+    /**
+     * Encode text as UTF-8 straight into a leased buffer, flipped for
+     * writing. Safe on any thread. Unpaired surrogates become '?', as with
+     * {@link java.nio.charset.StandardCharsets#UTF_8}.
+     */
+    public Lease encode(CharSequence text) {
+        Lease lease = acquire(encodedLength(text, 0, text.length()));
+        ByteBuffer out = lease.buffer();
+        putUtf8(text, 0, text.length(), out);
+        out.flip();
+        return lease;
+    }
+
+    /**
+     * Write text[start, end) as UTF-8 at the buffer's position, which must
+     * have {@link #encodedLength} bytes of room
+     */
+    static void putUtf8(CharSequence text, int start, int end, ByteBuffer out) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | (c >> 6)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (!Character.isSurrogate(c)) {
+                out.put((byte) (0xE0 | (c >> 12)));
+                out.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                out.put((byte) (0xF0 | (codePoint >> 18)));
+                out.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                out.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                out.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                out.put((byte) '?');
+            }
+        }
+    }
+
+    static int encodedLength(CharSequence text, int start, int end) {
+        int bytes = end - start;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (!Character.isSurrogate(c)) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                // Two chars, four bytes
+                bytes += 2;
+                i++;
+            }
+        }
+        return bytes;
+    }
+
+    private static int sizeClass(int capacity) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(1, capacity) - 1);
+        return Math.max(0, shift - MIN_SHIFT);
+    }
+
+    private void recycle(ByteBuffer buffer, int sizeClass, LeakCheck leakCheck) {
+        if (leakCheck != null) {
+            leakCheck.released = true;
+            leakCheck.cleanable.clean();
+        }
+
+        int size = buffer.capacity();
+        leases.decrement();
+        inUseBytes.add(-size);
+        if (idleBytes.addAndGet(size) > maxIdleBytes) {
+            idleBytes.addAndGet(-size);
+            discards.increment();
+            return;
+        }
+        free[sizeClass].add(buffer);
+    }
+
+    private void onLeak(int capacity) {
+        leases.decrement();
+        inUseBytes.add(-capacity);
+        leaks.increment();
+        logger.warn("Pooled buffer of {} bytes was garbage collected without being released", capacity);
+    }
+
+    /**
+     * Bytes currently leased out
+     */
+    public long getInUseBytes() {
+        return inUseBytes.sum();
+    }
+
+    /**
+     * Released bytes held for reuse
+     */
+    public long getIdleBytes() {
+        return idleBytes.get();
+    }
+
+    /**
+     * Leased bytes as a percentage of all the direct memory the pool holds
+     */
+    public long getUtilizationPercent() {
+        long inUse = getInUseBytes();
+        long held = inUse + getIdleBytes();
+        return held == 0 ? 0 : inUse * 100 / held;
+    }
+
+    public long getLeases() {
+        return leases.sum();
+    }
+
+    public long getAcquires() {
+        return acquires.sum();
+    }
+
+    /**
+     * Acquires that found no idle buffer and allocated a new one
+     */
+    public long getAllocations() {
+        return allocations.sum();
+    }
+
+    public long getOversize() {
+        return oversize.sum();
+    }
+
+    /**
+     * Released buffers dropped because the idle cap was reached
+     */
+    public long getDiscards() {
+        return discards.sum();
+    }
+
+    /**
+     * Sampled leases that were garbage collected without being released
+     */
+    public long getLeaks() {
+        return leaks.sum();
+    }
+
+    public long getDoubleReleases() {
+        return doubleReleases.sum();
+    }
+}
@@ -0,0 +1,422 @@
+package com.eric.GobangGameServer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This server's membership in a cluster of game servers. Sessions are placed
+ * on nodes by consistent hashing of their IDs, so the hash ring is the
+ * cluster directory and any node can route a session ID to its owner.
+ * A player always stays connected to the node they dialed. When they join
+ * or watch a session owned elsewhere, the owner creates a proxy player for
+ * them. From then on their commands are forwarded to the owner, and the
+ * proxy's output is relayed back. Waiting sessions are announced to every
+ * peer, so each lobby shows the whole cluster.
+ *
+ * Once the proxy is no longer playing, watching or queued, the owner
+ * releases it and the player's commands are handled locally again.
+ *
+ * Nodes talk over plain TCP, one line per message, with one outbound link
+ * per peer:
+ * HELLO node, ATTACH player host name, CMD player line, DROP player,
+ * OUT player line, DETACH player, LOBBY_ADD session host, LOBBY_REMOVE session.
+ */
+public class ClusterNode {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterNode.class);
+
+    static final String HELLO = "HELLO";
+    static final String ATTACH = "ATTACH";
+    static final String CMD = "CMD";
+    static final String DROP = "DROP";
+    static final String OUT = "OUT";
+    static final String DETACH = "DETACH";
+    static final String LOBBY_ADD = "LOBBY_ADD";
+    static final String LOBBY_REMOVE = "LOBBY_REMOVE";
+
+    private final GameServer server;
+    private final String nodeId;
+    private final String bindAddress;
+    private final int port;
+    private final ConsistentHashRing ring;
+    private final Map<String, PeerLink> peers = new LinkedHashMap<>();
+
+    // Local players whose game lives on a peer, by player ID
+    private final ConcurrentIntMap<PeerLink> routes = new ConcurrentIntMap<>();
+    // Stand-ins for players connected to a peer, by "origin/playerId"
+    private final ConcurrentHashMap<String, Player> proxies = new ConcurrentHashMap<>();
+    // Waiting sessions announced by peers, session ID -> owner
+    private final ConcurrentHashMap<String, String> remoteLobby = new ConcurrentHashMap<>();
+    // Orders lobby announcements against the snapshot sent to a reconnecting peer
+    private final Object lobbyLock = new Object();
+
+    private final LongAdder forwardedCommands = new LongAdder();
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+
+    public ClusterNode(GameServer server, String nodeId, String bindAddress, int port,
+                       Map<String, InetSocketAddress> peerAddresses, int virtualNodes) {
+        this.server = server;
+        this.nodeId = nodeId;
+        this.bindAddress = bindAddress;
+        this.port = port;
+
+        List<String> members = new ArrayList<>(peerAddresses.keySet());
+        members.add(nodeId);
+        this.ring = new ConsistentHashRing(members, virtualNodes);
+
+        for (Map.Entry<String, InetSocketAddress> peer : peerAddresses.entrySet()) {
+            InetSocketAddress address = peer.getValue();
+            peers.put(peer.getKey(), new PeerLink(peer.getKey(), address.getHostString(), address.getPort()));
+        }
+    }
+
+    /**
+     * Null unless server.cluster.node_id is set
+     */
+    public static ClusterNode fromConfig(GameServer server, ServerConfig config) {
+        String nodeId = config.getClusterNodeId();
+        if (nodeId == null || nodeId.isEmpty()) {
+            return null;
+        }
+        return new ClusterNode(server, nodeId, config.getBindAddress(), config.getClusterPort(),
+                config.getClusterPeers(), config.getClusterVirtualNodes());
+    }
+
+    public void start() throws IOException {
+        running = true;
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(bindAddress, port));
+
+        Thread acceptor = new Thread(this::acceptPeers, "cluster-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        for (PeerLink peer : peers.values()) {
+            peer.start(nodeId, () -> sendLobbySnapshot(peer));
+        }
+        logger.info("Cluster node {} listening on {}:{} with peers {}", nodeId, bindAddress, port, peers.keySet());
+    }
+
+    public void stop() {
+        running = false;
+        for (PeerLink peer : peers.values()) {
+            peer.stop();
+        }
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            logger.debug("Error closing cluster socket: {}", e.getMessage());
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean owns(int sessionId) {
+        return ring.ownerOf(GameSession.formatId(sessionId)).equals(nodeId);
+    }
+
+    /**
+     * Next ID from the counter that this node owns on the ring. Nodes only
+     * mint IDs they own, so IDs never collide across the cluster.
+     */
+    public int mintSessionId(IntSupplier counter) {
+        while (true) {
+            int sessionId = counter.getAsInt();
+            if (owns(sessionId)) {
+                return sessionId;
+            }
+        }
+    }
+
+    /**
+     * True if the player's game lives on a peer
+     */
+    public boolean isRouted(Player player) {
+        return !routes.isEmpty() && routes.containsKey(player.getId());
+    }
+
+    /**
+     * Forward a command from a routed player to the node holding their game
+     */
+    public void forward(Player player, CharSequence line) {
+        PeerLink peer = routes.get(player.getId());
+        if (peer == null) {
+            return;
+        }
+        if (!peer.send(CMD + " " + player.getPlayerId() + " " + line)) {
+            player.sendMessage("ERROR:Node unavailable");
+            return;
+        }
+        forwardedCommands.increment();
+    }
+
+    /**
+     * Move a player's game to the node that owns the session and send it the
+     * command that needs it there; false if that node is unreachable
+     */
+    public boolean routeTo(Player player, int sessionId, String line) {
+        PeerLink peer = peers.get(ring.ownerOf(GameSession.formatId(sessionId)));
+        if (peer == null || !peer.isConnected()) {
+            return false;
+        }
+
+        routes.put(player.getId(), peer);
+        peer.send(ATTACH + " " + player.getPlayerId() + " " + player.isHost() + " " + player.getPlayerName());
+        forward(player, line);
+        return true;
+    }
+
+    /**
+     * A local player disconnected; their proxy on a peer leaves too
+     */
+    public void playerLeft(Player player) {
+        PeerLink peer = routes.remove(player.getId());
+        if (peer != null) {
+            peer.send(DROP + " " + player.getPlayerId());
+        }
+    }
+
+    public void lobbyAdded(String sessionId, String hostName) {
+        synchronized (lobbyLock) {
+            broadcast(LOBBY_ADD + " " + sessionId + " " + hostName);
+        }
+    }
+
+    public void lobbyRemoved(String sessionId) {
+        synchronized (lobbyLock) {
+            broadcast(LOBBY_REMOVE + " " + sessionId);
+        }
+    }
+
+    public int getConnectedPeerCount() {
+        int count = 0;
+        for (PeerLink peer : peers.values()) {
+            if (peer.isConnected()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getRoutedPlayerCount() {
+        return routes.size();
+    }
+
+    public int getProxyCount() {
+        return proxies.size();
+    }
+
+    public long getForwardedCommands() {
+        return forwardedCommands.sum();
+    }
+
+    private void broadcast(String message) {
+        for (PeerLink peer : peers.values()) {
+            peer.send(message);
+        }
+    }
+
+    private void sendLobbySnapshot(PeerLink peer) {
+        synchronized (lobbyLock) {
+            server.forEachWaitingSession((sessionId, host) ->
+                    peer.send(LOBBY_ADD + " " + GameSession.formatId(sessionId) + " " + host.getPlayerName()));
+        }
+    }
+
+    private void acceptPeers() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread reader = new Thread(() -> readPeer(socket), "cluster-peer-" + socket.getPort());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) {
+                    logger.error("Error accepting cluster peer: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Inbound half of a peer link: apply the peer's messages until it goes away
+     */
+    private void readPeer(Socket socket) {
+        String origin = null;
+        try (socket; BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String hello = in.readLine();
+            if (hello == null || !hello.startsWith(HELLO + " ")) {
+                logger.warn("Rejecting cluster connection from {}: no HELLO", socket.getRemoteSocketAddress());
+                return;
+            }
+            origin = hello.substring(HELLO.length() + 1);
+            if (!peers.containsKey(origin)) {
+                logger.warn("Rejecting cluster connection from unknown node {}", origin);
+                return;
+            }
+            logger.info("Cluster peer {} connected", origin);
+
+            Command command = new Command();
+            String line;
+            while ((line = in.readLine()) != null) {
+                handlePeerMessage(origin, line, command);
+            }
+        } catch (IOException e) {
+            if (running) {
+                logger.warn("Cluster peer {} read failed: {}", origin, e.getMessage());
+            }
+        } finally {
+            if (origin != null && peers.containsKey(origin)) {
+                peerDown(origin);
+            }
+        }
+    }
+
+    private void handlePeerMessage(String origin, String line, Command command) {
+        int verbEnd = line.indexOf(' ');
+        if (verbEnd < 0) {
+            logger.warn("Malformed message from peer {}: {}", origin, line);
+            return;
+        }
+        String verb = line.substring(0, verbEnd);
+        int idEnd = line.indexOf(' ', verbEnd + 1);
+        String id = line.substring(verbEnd + 1, idEnd < 0 ? line.length() : idEnd);
+        String rest = idEnd < 0 ? "" : line.substring(idEnd + 1);
+
+        switch (verb) {
+            case CMD: {
+                Player proxy = proxies.get(origin + "/" + id);
+                if (proxy != null) {
+                    server.processClientMessage(proxy, rest, command);
+                } else {
+                    // Crossed with our DETACH
+                    peers.get(origin).send(OUT + " " + id + " ERROR:Not in a session");
+                }
+                break;
+            }
+            case OUT: {
+                Player player = server.getConnectedPlayer(Player.parseId(id));
+                if (player == null) {
+                    player = proxies.get(id);
+                }
+                if (player != null) {
+                    player.sendMessage(rest);
+                }
+                break;
+            }
+            case ATTACH:
+                attach(origin, id, rest);
+                break;
+            case DETACH:
+                routes.remove(Player.parseId(id), peers.get(origin));
+                break;
+            case DROP: {
+                Player proxy = proxies.remove(origin + "/" + id);
+                if (proxy != null) {
+                    server.cleanupPlayer(proxy);
+                }
+                break;
+            }
+            case LOBBY_ADD:
+                remoteLobby.put(id, origin);
+                server.addRemoteLobbyEntry(id, rest);
+                break;
+            case LOBBY_REMOVE:
+                remoteLobby.remove(id);
+                server.removeRemoteLobbyEntry(id);
+                break;
+            default:
+                logger.warn("Unknown message from peer {}: {}", origin, verb);
+        }
+    }
+
+    /**
+     * ATTACH player isHost name: create the proxy that plays for a peer's client here
+     */
+    private void attach(String origin, String playerId, String rest) {
+        int split = rest.indexOf(' ');
+        if (split < 0) {
+            logger.warn("Malformed ATTACH from peer {} for player {}: {}", origin, playerId, rest);
+            return;
+        }
+        boolean isHost = Boolean.parseBoolean(rest.substring(0, split));
+        String name = rest.substring(split + 1);
+
+        String proxyId = origin + "/" + playerId;
+        PeerConnection connection = new PeerConnection(this, peers.get(origin), playerId, proxyId);
+        Player proxy = new Player(server.nextPlayerId(), name, connection, isHost, server.getOutboundPolicy());
+        Player previous = proxies.put(proxyId, proxy);
+        if (previous != null) {
+            server.cleanupPlayer(previous);
+        }
+        logger.info("Player {} attached from node {}", proxyId, origin);
+    }
+
+    /**
+     * Hand a proxy's player back to their own node once the proxy is neither
+     * playing, watching nor queued here
+     */
+    void releaseIfIdle(String proxyId) {
+        Player proxy = proxies.get(proxyId);
+        if (proxy == null || proxy.isInSession() || proxy.getSpectatingSessionId() != Player.NO_SESSION
+                || proxy.getMatchTicket() != null) {
+            return;
+        }
+
+        if (proxies.remove(proxyId, proxy)) {
+            int split = proxyId.indexOf('/');
+            peers.get(proxyId.substring(0, split)).send(DETACH + " " + proxyId.substring(split + 1));
+            logger.info("Player {} released back to its node", proxyId);
+        }
+    }
+
+    /**
+     * A peer went away: its players' proxies leave their games, local players
+     * whose games it held lose them, and its waiting sessions leave the lobby
+     */
+    private void peerDown(String origin) {
+        logger.warn("Cluster peer {} disconnected", origin);
+        String prefix = origin + "/";
+        proxies.forEach((proxyId, proxy) -> {
+            if (proxyId.startsWith(prefix) && proxies.remove(proxyId, proxy)) {
+                server.cleanupPlayer(proxy);
+            }
+        });
+
+        PeerLink peer = peers.get(origin);
+        routes.forEach((playerId, route) -> {
+            if (route == peer && routes.remove(playerId, route)) {
+                Player player = server.getConnectedPlayer(playerId);
+                if (player != null) {
+                    player.sendMessage("OPPONENT_DISCONNECTED");
+                }
+            }
+        });
+
+        remoteLobby.forEach((sessionId, owner) -> {
+            if (owner.equals(origin) && remoteLobby.remove(sessionId, owner)) {
+                server.removeRemoteLobbyEntry(sessionId);
+            }
+        });
+    }
+}
@@ -0,0 +1,97 @@
+package com.eric.GobangGameServer;
+
+/**
+ * Decoded client command. One instance is reused by each reading thread, so
+ * it is only valid until the next line is decoded into it.
+ */
+public class Command {
+    private Opcode opcode = Opcode.UNKNOWN;
+    private CharSequence source;
+    private int verbEnd;
+    private int argStart;
+    private int argEnd;
+    private int row;
+    private int col;
+    // Set for binary commands, which have no source line to slice the verb from
+    private String verb;
+
+    void set(Opcode opcode, CharSequence source, int verbEnd, int argStart, int argEnd) {
+        this.opcode = opcode;
+        this.source = source;
+        this.verbEnd = verbEnd;
+        this.argStart = argStart;
+        this.argEnd = argEnd;
+        this.row = -1;
+        this.col = -1;
+        this.verb = null;
+    }
+
+    /**
+     * Fill from a binary frame: the argument arrives as decoded text and the
+     * verb is given, since there is no line to take it from
+     */
+    void setDecoded(Opcode opcode, String verb, String argument) {
+        set(opcode, argument, 0, 0, argument.length());
+        this.verb = verb;
+    }
+
+    void setMove(int row, int col) {
+        this.row = row;
+        this.col = col;
+    }
+
+    public Opcode getOpcode() {
+        return opcode;
+    }
+
+    /**
+     * MOVE row, or -1 if the argument was not a valid "row,col"
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * MOVE column, or -1 if the argument was not a valid "row,col"
+     */
+    public int getCol() {
+        return col;
+    }
+
+    /**
+     * Text after the first ':' (empty if none). Allocates, so only handlers
+     * that keep or forward the text call it.
+     */
+    public String argument() {
+        return slice(argStart, argEnd);
+    }
+
+    /**
+     * The verb as sent by the client, used when reporting unknown commands
+     */
+    public String verb() {
+        return verb != null ? verb : slice(0, verbEnd);
+    }
+
+    /**
+     * The command as a text protocol line, for relaying a binary command to
+     * a peer node; text commands relay their original line instead
+     */
+    public String toLine() {
+        if (opcode == Opcode.MOVE) {
+            return row >= 0 ? MessageProtocol.formatMoveMessage(row, col) : MessageProtocol.MAKE_MOVE + ":";
+        }
+        String argument = argument();
+        return argument.isEmpty() ? verb() : verb() + ":" + argument;
+    }
+
+    private String slice(int start, int end) {
+        if (start >= end) {
+            return "";
+        }
+        if (source instanceof String) {
+            return ((String) source).substring(start, end);
+        }
+        return source.subSequence(start, end).toString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.eric.GobangGameServer;
+
+/**
+ * Decodes "VERB[:args]" lines into a reusable {@link Command} without
+ * splitting or creating intermediate strings
+ */
+public final class CommandDecoder {
+
+    private CommandDecoder() {
+    }
+
+    /**
+     * Decode a line into the given command and return it
+     */
+    public static Command decode(CharSequence line, Command command) {
+        int length = line.length();
+        int verbEnd = indexOf(line, ':', 0, length);
+        int argStart = verbEnd < length ? verbEnd + 1 : length;
+
+        Opcode opcode = matchVerb(line, verbEnd);
+        command.set(opcode, line, verbEnd, argStart, length);
+
+        if (opcode == Opcode.MOVE) {
+            decodeMove(line, argStart, length, command);
+        }
+        return command;
+    }
+
+    private static Opcode matchVerb(CharSequence line, int verbEnd) {
+        for (Opcode opcode : Opcode.VALUES) {
+            String verb = opcode.getVerb();
+            if (verb.length() == verbEnd && regionMatches(line, verb, verbEnd)) {
+                return opcode;
+            }
+        }
+        return Opcode.UNKNOWN;
+    }
+
+    /**
+     * Parse "row,col" straight into ints; leaves -1/-1 on malformed input
+     */
+    private static void decodeMove(CharSequence line, int start, int end, Command command) {
+        int comma = indexOf(line, ',', start, end);
+        if (comma == end) {
+            return;
+        }
+
+        int row = parseInt(line, start, comma);
+        int col = parseInt(line, comma + 1, end);
+        if (row >= 0 && col >= 0) {
+            command.setMove(row, col);
+        }
+    }
+
+    /**
+     * Parse a small non-negative decimal, returning -1 if it is empty, too long or not a number
+     */
+    static int parseInt(CharSequence text, int start, int end) {
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int indexOf(CharSequence text, char target, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == target) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static boolean regionMatches(CharSequence line, String verb, int length) {
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) != verb.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,9 @@
+package com.eric.GobangGameServer;
+
+/**
+ * Handler for one decoded client command
+ */
+@FunctionalInterface
+public interface CommandHandler {
+    void handle(Player player, Command command);
+}
@@ -0,0 +1,222 @@
+package com.eric.GobangGameServer;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Concurrent map from int keys to values, for player and session IDs. Keys
+ * are stored unboxed in an open-addressing table with linear probing, so a
+ * lookup hashes one int and compares ints instead of hashing and comparing
+ * strings, and an entry costs one int and one reference instead of a node
+ * and a key object.
+ *
+ * Reads take no lock. A slot's key is written before its value is published,
+ * and a slot never changes key within a table, so a reader that sees a value
+ * also sees the right key. Removal leaves a tombstone that only the same key
+ * may reuse. Writers serialize on the map and rebuild the table when it
+ * fills with entries or tombstones; readers keep probing the table they
+ * started with, which writers no longer change.
+ */
+public class ConcurrentIntMap<V> implements Iterable<V> {
+    private static final Object TOMBSTONE = new Object();
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Receives each entry of {@link #forEach}
+     */
+    public interface EntryConsumer<V> {
+        void accept(int key, V value);
+    }
+
+    private static final class Table {
+        final int[] keys;
+        final AtomicReferenceArray<Object> values;
+        final int mask;
+
+        Table(int capacity) {
+            keys = new int[capacity];
+            values = new AtomicReferenceArray<>(capacity);
+            mask = capacity - 1;
+        }
+    }
+
+    private volatile Table table = new Table(MIN_CAPACITY);
+    private volatile int size;
+    // Live entries plus tombstones in the current table; guarded by this
+    private int used;
+
+    public V get(int key) {
+        Table current = table;
+        for (int i = slot(key, current.mask); ; i = (i + 1) & current.mask) {
+            Object value = current.values.get(i);
+            if (value == null) {
+                return null;
+            }
+            if (current.keys[i] == key) {
+                return value == TOMBSTONE ? null : cast(value);
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Map the key to a non-null value, returning the previous value or null
+     */
+    public synchronized V put(int key, V value) {
+        Table current = table;
+        int i = find(current, key);
+        if (current.values.get(i) == null) {
+            if (used + 1 > (current.mask + 1) >>> 1) {
+                rebuild(size + 1);
+                current = table;
+                i = find(current, key);
+            }
+            used++;
+            current.keys[i] = key;
+        }
+
+        Object previous = current.values.getAndSet(i, value);
+        if (previous == null || previous == TOMBSTONE) {
+            size++;
+            return null;
+        }
+        return cast(previous);
+    }
+
+    public synchronized V putIfAbsent(int key, V value) {
+        V existing = get(key);
+        return existing != null ? existing : put(key, value);
+    }
+
+    public synchronized V remove(int key) {
+        Table current = table;
+        int i = find(current, key);
+        Object previous = current.values.get(i);
+        if (previous == null || previous == TOMBSTONE) {
+            return null;
+        }
+        current.values.set(i, TOMBSTONE);
+        size--;
+        return cast(previous);
+    }
+
+    /**
+     * Remove the entry only if it still maps to the given value
+     */
+    public synchronized boolean remove(int key, V value) {
+        if (get(key) != value || value == null) {
+            return false;
+        }
+        remove(key);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Visit every entry; weakly consistent, like ConcurrentHashMap iteration
+     */
+    public void forEach(EntryConsumer<? super V> action) {
+        Table current = table;
+        for (int i = 0; i <= current.mask; i++) {
+            Object value = current.values.get(i);
+            if (value != null && value != TOMBSTONE) {
+                action.accept(current.keys[i], cast(value));
+            }
+        }
+    }
+
+    /**
+     * Values of the table as it was when iteration started
+     */
+    @Override
+    public Iterator<V> iterator() {
+        Table current = table;
+        return new Iterator<V>() {
+            private int index = -1;
+            private V nextValue = advance();
+
+            private V advance() {
+                while (++index <= current.mask) {
+                    Object value = current.values.get(index);
+                    if (value != null && value != TOMBSTONE) {
+                        return cast(value);
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextValue != null;
+            }
+
+            @Override
+            public V next() {
+                if (nextValue == null) {
+                    throw new NoSuchElementException();
+                }
+                V value = nextValue;
+                nextValue = advance();
+                return value;
+            }
+        };
+    }
+
+    /**
+     * The key's slot, or the empty slot where it would go; caller holds the lock
+     */
+    private static int find(Table current, int key) {
+        for (int i = slot(key, current.mask); ; i = (i + 1) & current.mask) {
+            Object value = current.values.get(i);
+            if (value == null || current.keys[i] == key) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Copy the live entries into a fresh table sized for the given count,
+     * dropping tombstones; caller holds the lock
+     */
+    private void rebuild(int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries * 4) {
+            capacity <<= 1;
+        }
+
+        Table old = table;
+        Table fresh = new Table(capacity);
+        for (int i = 0; i <= old.mask; i++) {
+            Object value = old.values.get(i);
+            if (value != null && value != TOMBSTONE) {
+                int j = find(fresh, old.keys[i]);
+                fresh.keys[j] = old.keys[i];
+                fresh.values.set(j, value);
+            }
+        }
+        used = size;
+        table = fresh;
+    }
+
+    private static int slot(int key, int mask) {
+        // Fibonacci hashing spreads sequential IDs across the table
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object value) {
+        return (V) value;
+    }
+}
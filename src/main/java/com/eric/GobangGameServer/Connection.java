@@ -0,0 +1,76 @@
+package com.eric.GobangGameServer;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Transport-level link to a single client, independent of the I/O model
+ */
+public interface Connection {
+
+    /**
+     * Send a single protocol line to the client, bypassing the player's outbound queue
+     */
+    default void send(String message) {
+        write(message + "\n");
+    }
+
+    /**
+     * Write one or more newline-terminated lines as a single transport write
+     */
+    void write(CharSequence lines);
+
+    /**
+     * Write a pre-encoded frame shared with other connections. Transports
+     * override this to send the bytes as-is; the default re-encodes the line.
+     */
+    default void writeFrame(Frame frame) {
+        write(frame.getLine() + "\n");
+    }
+
+    /**
+     * Switch to the binary protocol for everything after the handshake.
+     * Returns false if this transport only speaks text.
+     */
+    default boolean enableBinary() {
+        return false;
+    }
+
+    default boolean isBinary() {
+        return false;
+    }
+
+    /**
+     * Executor that performs writes for this connection, so senders never block on the socket
+     */
+    Executor getWriteExecutor();
+
+    /**
+     * Bytes accepted by write() that have not reached the socket yet
+     */
+    default int getPendingBytes() {
+        return 0;
+    }
+
+    /**
+     * Bytes of read and write buffers this connection currently holds
+     */
+    default int getRetainedBytes() {
+        return 0;
+    }
+
+    /**
+     * Callback run on the write executor once pending bytes have drained
+     */
+    default void setWritableListener(Runnable listener) {
+    }
+
+    /**
+     * Close the underlying transport
+     */
+    void close();
+
+    /**
+     * Remote address used for logging
+     */
+    String getRemoteAddress();
+}
@@ -0,0 +1,102 @@
+package com.eric.GobangGameServer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Snapshot of what connections cost in memory. Buffer bytes are counted
+ * exactly from each player's outbound queue and transport; object overhead
+ * is not, so the heap figures divide the live heap by the open connections.
+ * That average includes the server's own baseline and is therefore an upper
+ * bound, which is what matters when sizing the heap for many idle clients.
+ */
+public final class ConnectionFootprint {
+    private final int connections;
+    private final long bufferBytes;
+    private final long maxBufferBytes;
+    private final long liveHeapBytes;
+    private final long maxHeapBytes;
+
+    private ConnectionFootprint(int connections, long bufferBytes, long maxBufferBytes,
+                                long liveHeapBytes, long maxHeapBytes) {
+        this.connections = connections;
+        this.bufferBytes = bufferBytes;
+        this.maxBufferBytes = maxBufferBytes;
+        this.liveHeapBytes = liveHeapBytes;
+        this.maxHeapBytes = maxHeapBytes;
+    }
+
+    /**
+     * Walk the players once and read the heap pools
+     *
+     * @param connections open connections, including those still in the handshake
+     */
+    public static ConnectionFootprint measure(Iterable<Player> players, int connections) {
+        long total = 0;
+        long max = 0;
+        for (Player player : players) {
+            long retained = player.getRetainedBytes();
+            total += retained;
+            max = Math.max(max, retained);
+        }
+        return new ConnectionFootprint(connections, total, max, liveHeapBytes(),
+                Runtime.getRuntime().maxMemory());
+    }
+
+    /**
+     * Heap in use after the last collection, or current use if there has
+     * not been one yet; garbage between collections would skew the average
+     */
+    static long liveHeapBytes() {
+        long live = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP) {
+                continue;
+            }
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            live += afterGc != null && afterGc.getUsed() > 0 ? afterGc.getUsed() : pool.getUsage().getUsed();
+        }
+        return live;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Read, write and outbound queue buffer bytes held by all players
+     */
+    public long getBufferBytes() {
+        return bufferBytes;
+    }
+
+    public long getMaxBufferBytes() {
+        return maxBufferBytes;
+    }
+
+    public long getBufferBytesPerConnection() {
+        return connections > 0 ? bufferBytes / connections : 0;
+    }
+
+    public long getLiveHeapBytes() {
+        return liveHeapBytes;
+    }
+
+    public long getMaxHeapBytes() {
+        return maxHeapBytes;
+    }
+
+    public long getHeapBytesPerConnection() {
+        return connections > 0 ? liveHeapBytes / connections : 0;
+    }
+
+    /**
+     * Connections the maximum heap would hold at the current average, or -1 with none open
+     */
+    public long getProjectedConnections() {
+        long perConnection = getHeapBytesPerConnection();
+        return perConnection > 0 ? maxHeapBytes / perConnection : -1;
+    }
+}
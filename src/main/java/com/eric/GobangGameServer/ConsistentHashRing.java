@@ -0,0 +1,49 @@
+package com.eric.GobangGameServer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps keys to node IDs by consistent hashing. Each node is placed at
+ * several points on a 32-bit ring, and a key belongs to the first node
+ * clockwise from its own hash. Every node builds the same ring from the
+ * same member list, so any node can find a key's owner without asking.
+ */
+public class ConsistentHashRing {
+    private final TreeMap<Integer, String> ring = new TreeMap<>();
+
+    public ConsistentHashRing(Collection<String> nodeIds, int virtualNodes) {
+        for (String nodeId : nodeIds) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(nodeId + "#" + i), nodeId);
+            }
+        }
+        if (ring.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+    }
+
+    public String ownerOf(String key) {
+        Map.Entry<Integer, String> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * FNV-1a with a final avalanche, so keys that differ in one digit land far apart
+     */
+    static int hash(String key) {
+        int hash = 0x811c9dc5;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x01000193;
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
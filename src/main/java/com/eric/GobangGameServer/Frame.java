@@ -0,0 +1,70 @@
+package com.eric.GobangGameServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One protocol line encoded to UTF-8 once and shared, read-only, by every
+ * recipient. Used for fan-out to spectators, where the same event goes to
+ * many connections. The binary protocol form is encoded on first use, also
+ * once for all binary recipients.
+ */
+public final class Frame {
+    private final String line;
+    private final byte[] bytes;
+    private volatile byte[] binaryBytes;
+
+    private Frame(String line) {
+        this.line = line;
+        this.bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static Frame of(String line) {
+        return new Frame(line);
+    }
+
+    /**
+     * The line without its terminator
+     */
+    public String getLine() {
+        return line;
+    }
+
+    /**
+     * Encoded length including the newline
+     */
+    public int length() {
+        return bytes.length;
+    }
+
+    /**
+     * A fresh read-only view for one connection; the bytes are not copied
+     */
+    public ByteBuffer buffer(boolean binary) {
+        return ByteBuffer.wrap(bytes(binary)).asReadOnlyBuffer();
+    }
+
+    public void writeTo(OutputStream out, boolean binary) throws IOException {
+        out.write(bytes(binary));
+    }
+
+    private byte[] bytes(boolean binary) {
+        if (!binary) {
+            return bytes;
+        }
+        // Racing encoders produce identical bytes, so either may win
+        byte[] encoded = binaryBytes;
+        if (encoded == null) {
+            encoded = BinaryProtocol.encodeLine(line);
+            binaryBytes = encoded;
+        }
+        return encoded;
+    }
+
+    @Override
+    public String toString() {
+        return line;
+    }
+}
@@ -0,0 +1,265 @@
+package com.eric.GobangGameServer;
+
+/**
+ * Server-side 15x15 board stored as one bitboard per colour.
+ * Cell (row, col) maps to bit row * 15 + col; 225 cells fit in four longs.
+ * Placing a stone and checking for five in a row allocate nothing. Boards
+ * under the standard or Renju rules classify the lines through each move
+ * with {@link LinePatterns}.
+ */
+public class GameBoard {
+    public static final int SIZE = 15;
+    public static final int CELLS = SIZE * SIZE;
+    private static final int WORDS = (CELLS + 63) >>> 6;
+    private static final int WIN_LENGTH = 5;
+    private static final int[] DR = {0, 1, 1, 1};
+    private static final int[] DC = {1, 0, 1, -1};
+
+    // Renju verdicts for a black stone
+    private static final int LEGAL = 0;
+    private static final int FIVE = 1;
+    private static final int FOUL = 2;
+    // How many stones deep a three is followed to decide whether its straight four can be made
+    private static final int MAX_THREE_DEPTH = 3;
+
+    /**
+     * Outcome of placing a stone
+     */
+    public enum MoveResult {
+        OUT_OF_BOUNDS,
+        OCCUPIED,
+        /** A black overline, double four or double three under Renju; the board is unchanged */
+        FORBIDDEN,
+        PLACED,
+        WIN,
+        DRAW
+    }
+
+    private final long[] black = new long[WORDS];
+    private final long[] white = new long[WORDS];
+    private final RuleVariant rules;
+    private int moveCount = 0;
+    private int lastRow = -1;
+    private int lastCol = -1;
+
+    public GameBoard() {
+        this(RuleVariant.FREESTYLE);
+    }
+
+    public GameBoard(RuleVariant rules) {
+        this.rules = rules;
+    }
+
+    public RuleVariant getRules() {
+        return rules;
+    }
+
+    /**
+     * Place a stone for the given colour and report whether it wins the game
+     */
+    public MoveResult place(int row, int col, boolean isBlack) {
+        if (!isOnBoard(row, col)) {
+            return MoveResult.OUT_OF_BOUNDS;
+        }
+
+        int index = row * SIZE + col;
+        if (isSet(black, index) || isSet(white, index)) {
+            return MoveResult.OCCUPIED;
+        }
+
+        long[] stones = isBlack ? black : white;
+        stones[index >>> 6] |= 1L << index;
+
+        boolean five;
+        if (rules == RuleVariant.FREESTYLE) {
+            five = isFive(stones, row, col);
+        } else if (rules == RuleVariant.RENJU && isBlack) {
+            int verdict = renjuVerdict(row, col, 0);
+            if (verdict == FOUL) {
+                stones[index >>> 6] &= ~(1L << index);
+                return MoveResult.FORBIDDEN;
+            }
+            five = verdict == FIVE;
+        } else {
+            five = hasFive(stones, isBlack ? white : black, row, col, rules == RuleVariant.RENJU);
+        }
+
+        moveCount++;
+        lastRow = row;
+        lastCol = col;
+        if (five) {
+            return MoveResult.WIN;
+        }
+        return moveCount == CELLS ? MoveResult.DRAW : MoveResult.PLACED;
+    }
+
+    public boolean isOccupied(int row, int col) {
+        int index = row * SIZE + col;
+        return isSet(black, index) || isSet(white, index);
+    }
+
+    /**
+     * Stone colour at a cell: 1 for black, 2 for white, 0 for empty
+     */
+    public int getStone(int row, int col) {
+        int index = row * SIZE + col;
+        if (isSet(black, index)) {
+            return 1;
+        }
+        return isSet(white, index) ? 2 : 0;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    public int getLastRow() {
+        return lastRow;
+    }
+
+    public int getLastCol() {
+        return lastCol;
+    }
+
+    public void reset() {
+        for (int i = 0; i < WORDS; i++) {
+            black[i] = 0L;
+            white[i] = 0L;
+        }
+        moveCount = 0;
+        lastRow = -1;
+        lastCol = -1;
+    }
+
+    public static boolean isOnBoard(int row, int col) {
+        return row >= 0 && row < SIZE && col >= 0 && col < SIZE;
+    }
+
+    /**
+     * Check only the four lines through the stone just placed
+     */
+    private boolean isFive(long[] stones, int row, int col) {
+        return lineLength(stones, row, col, 0, 1) >= WIN_LENGTH
+                || lineLength(stones, row, col, 1, 0) >= WIN_LENGTH
+                || lineLength(stones, row, col, 1, 1) >= WIN_LENGTH
+                || lineLength(stones, row, col, 1, -1) >= WIN_LENGTH;
+    }
+
+    /**
+     * Exactly five through the stone, or an overline too if overlines win
+     */
+    private static boolean hasFive(long[] own, long[] other, int row, int col, boolean overlineWins) {
+        for (int d = 0; d < DR.length; d++) {
+            int entry = lineEntry(own, other, row, col, d);
+            if (LinePatterns.isFive(entry) || (overlineWins && LinePatterns.isOverline(entry))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Verdict for the black stone just placed at (row, col): exactly five
+     * wins whatever else it makes; otherwise an overline, two fours or two
+     * real threes are a foul
+     */
+    private int renjuVerdict(int row, int col, int depth) {
+        boolean overline = false;
+        int fours = 0;
+        int threeDirections = 0;
+        for (int d = 0; d < DR.length; d++) {
+            int entry = lineEntry(black, white, row, col, d);
+            if (LinePatterns.isFive(entry)) {
+                return FIVE;
+            }
+            overline |= LinePatterns.isOverline(entry);
+            fours += LinePatterns.fours(entry);
+            if (LinePatterns.threeCompletions(entry) != 0) {
+                threeDirections |= 1 << d;
+            }
+        }
+
+        if (overline || fours >= 2) {
+            return FOUL;
+        }
+        if (Integer.bitCount(threeDirections) < 2) {
+            return LEGAL;
+        }
+
+        int threes = 0;
+        for (int d = 0; d < DR.length; d++) {
+            if ((threeDirections & (1 << d)) != 0 && isRealThree(row, col, d, depth) && ++threes >= 2) {
+                return FOUL;
+            }
+        }
+        return LEGAL;
+    }
+
+    /**
+     * A three only counts if black could legally play one of the cells that
+     * make it a straight four
+     */
+    private boolean isRealThree(int row, int col, int d, int depth) {
+        if (depth >= MAX_THREE_DEPTH) {
+            return true;
+        }
+
+        int completions = LinePatterns.threeCompletions(lineEntry(black, white, row, col, d));
+        while (completions != 0) {
+            int offset = Integer.numberOfTrailingZeros(completions) - LinePatterns.RADIUS;
+            completions &= completions - 1;
+
+            int r = row + offset * DR[d];
+            int c = col + offset * DC[d];
+            int index = r * SIZE + c;
+            black[index >>> 6] |= 1L << index;
+            boolean legal = renjuVerdict(r, c, depth + 1) != FOUL;
+            black[index >>> 6] &= ~(1L << index);
+            if (legal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Table entry for the 11 cells centred on (row, col) in direction d
+     */
+    private static int lineEntry(long[] own, long[] other, int row, int col, int d) {
+        int line = 0;
+        for (int k = LinePatterns.RADIUS; k >= -LinePatterns.RADIUS; k--) {
+            int r = row + k * DR[d];
+            int c = col + k * DC[d];
+            int cell;
+            if (!isOnBoard(r, c) || isSet(other, r * SIZE + c)) {
+                cell = LinePatterns.BLOCKED;
+            } else {
+                cell = isSet(own, r * SIZE + c) ? LinePatterns.OWN : LinePatterns.EMPTY;
+            }
+            line = line * 3 + cell;
+        }
+        return LinePatterns.entry(line);
+    }
+
+    private static int lineLength(long[] stones, int row, int col, int dRow, int dCol) {
+        return 1 + countDirection(stones, row, col, dRow, dCol)
+                + countDirection(stones, row, col, -dRow, -dCol);
+    }
+
+    private static int countDirection(long[] stones, int row, int col, int dRow, int dCol) {
+        int count = 0;
+        int r = row + dRow;
+        int c = col + dCol;
+
+        while (isOnBoard(r, c) && isSet(stones, r * SIZE + c)) {
+            count++;
+            r += dRow;
+            c += dCol;
+        }
+        return count;
+    }
+
+    private static boolean isSet(long[] stones, int index) {
+        return (stones[index >>> 6] & (1L << index)) != 0;
+    }
+}
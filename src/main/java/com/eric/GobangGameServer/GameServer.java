@@ -2,16 +2,20 @@
 package com.eric.GobangGameServer;
 
 import java.io.IOException;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,51 +27,403 @@ public class GameServer {
 
     private final int port;
     private final int maxPlayers;
+    private final ServerConfig config;
     private volatile boolean isRunning = false;
     private ServerSocket serverSocket;
+    private NioServer nioServer;
+    private final BufferPool bufferPool;
     private final ExecutorService clientExecutor;
-    private final ExecutorService sessionExecutor;
-
-    // Thread-safe collections for managing players and sessions
-    private final ConcurrentHashMap<String, Player> connectedPlayers;
-    private final ConcurrentHashMap<String, GameSession> activeSessions;
-    private final ConcurrentHashMap<String, Player> waitingPlayers;
+    private final ExecutorService writerExecutor;
+    private final SessionWorkers sessionWorkers;
+    private final CommandHandler[] handlers = createHandlers();
+    private final OutboundPolicy outboundPolicy;
+    // One handler for every player rather than a captured method reference each
+    private final Consumer<Player> slowConsumerHandler = this::disconnectSlowConsumer;
+    private final RuleVariant defaultRules;
+
+    // Connection slots claimed at accept time, and per-connection command budgets
+    private final AdmissionControl admission;
+    private final RateLimits rateLimits;
+
+    // Thread-safe collections for managing players and sessions, keyed by int ID
+    private final ConcurrentIntMap<Player> connectedPlayers;
+    private final ConcurrentIntMap<GameSession> activeSessions;
+    private final ConcurrentIntMap<Player> waitingPlayers;
+
+    // Joinable sessions, published to idle players as coalesced deltas
+    private final LobbyIndex lobbyIndex = new LobbyIndex();
+    private final ScheduledExecutorService lobbyPublisher;
+    private final AtomicBoolean lobbyPublishScheduled = new AtomicBoolean(false);
+
+    // Per-player heartbeat and idle deadlines
+    private final TimingWheel timingWheel = new TimingWheel(100, TimeUnit.MILLISECONDS, 512);
+    private final long heartbeatNanos;
+    private final long idleTimeoutNanos;
+
+    // Hot-path metrics, scraped at /metrics and summarized by the status command
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final MetricsRegistry.Counter[] commandCounts = metrics.counters("gobang_commands_total",
+            "Client commands received, by type", "command", opcodeLabels());
+    private final MetricsRegistry.Counter acceptedConnections = metrics.counter(
+            "gobang_connections_accepted_total", "Client connections accepted");
+    private final MetricsRegistry.Counter rejectedConnections = metrics.counter(
+            "gobang_connections_rejected_total", "Client connections rejected at the player limit");
+    private final MetricsRegistry.Counter rejectedByAddress = metrics.counter(
+            "gobang_connections_rejected_ip_limit_total", "Client connections rejected at the per-address limit");
+    private final MetricsRegistry.Counter[] rateLimitedCommands = metrics.counters("gobang_commands_rate_limited_total",
+            "Client commands refused by a rate limit, by type", "command", opcodeLabels());
+    private final MetricsRegistry.Histogram moveLatency = metrics.histogram("gobang_move_processing_seconds",
+            "Time to validate, apply and fan out a move", TimeUnit.MICROSECONDS,
+            10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 50000);
+    private final MetricsRegistry.Histogram sessionLifetime = metrics.histogram("gobang_session_lifetime_seconds",
+            "Time from session creation to removal", TimeUnit.SECONDS,
+            10, 30, 60, 300, 600, 1800, 3600, 7200);
+    private final MetricsRegistry.Histogram matchmakingWait = metrics.histogram("gobang_matchmaking_wait_seconds",
+            "Time from QUEUE to MATCH_FOUND", TimeUnit.SECONDS,
+            1, 2, 5, 10, 30, 60, 120, 300);
+    private final MetricsHttpServer metricsServer = new MetricsHttpServer(metrics);
+
+    // Rating-based pairing for players who QUEUE instead of picking a session
+    private final Matchmaker matchmaker;
+
+    // Computer opponent for PLAY_AI games, created on first use
+    private volatile GomokuAI ai;
+
+    // Peers in a multi-node cluster, or null when running standalone
+    private final ClusterNode cluster;
+
+    // Crash recovery: games found in the journal at startup wait here, keyed by player name
+    private final MoveJournal journal;
+    private final ConcurrentHashMap<String, SuspendedGame> suspendedGames = new ConcurrentHashMap<>();
 
     // For generating unique IDs
     private final AtomicInteger playerIdCounter = new AtomicInteger(1);
     private final AtomicInteger sessionIdCounter = new AtomicInteger(1);
 
     public GameServer(int port, int maxPlayers) {
-        this.port = port;
-        this.maxPlayers = maxPlayers;
-        this.clientExecutor = Executors.newCachedThreadPool();
-        this.sessionExecutor = Executors.newFixedThreadPool(10);
-        this.connectedPlayers = new ConcurrentHashMap<>();
-        this.activeSessions = new ConcurrentHashMap<>();
-        this.waitingPlayers = new ConcurrentHashMap<>();
+        this(defaultConfig(port, maxPlayers));
+    }
+
+    public GameServer(ServerConfig config) {
+        this.config = config;
+        this.port = config.getPort();
+        this.maxPlayers = config.getMaxPlayers();
+        this.outboundPolicy = OutboundPolicy.fromConfig(config);
+        this.defaultRules = config.getDefaultRules();
+        this.admission = new AdmissionControl(maxPlayers, config.getMaxConnectionsPerIp());
+        this.rateLimits = RateLimits.fromConfig(config);
+        this.heartbeatNanos = TimeUnit.SECONDS.toNanos(config.getHeartbeatInterval());
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(config.getTimeout());
+        this.clientExecutor = createClientExecutor(config.isVirtualThreadMode());
+        this.writerExecutor = createClientExecutor(config.isVirtualThreadMode());
+        this.sessionWorkers = new SessionWorkers(config.getSessionWorkers(), config.getSessionDrainBatch());
+        this.bufferPool = BufferPool.fromConfig(config);
+        this.connectedPlayers = new ConcurrentIntMap<>();
+        this.activeSessions = new ConcurrentIntMap<>();
+        this.waitingPlayers = new ConcurrentIntMap<>();
+        this.lobbyPublisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lobby-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.matchmaker = Matchmaker.fromConfig(config, this::startMatchedGame);
+        this.cluster = ClusterNode.fromConfig(this, config);
+        registerGauges();
+        this.journal = openJournal();
+    }
+
+    /**
+     * Open the move journal if configured and suspend the games it recovers;
+     * a journal that cannot be opened is logged and skipped
+     */
+    private MoveJournal openJournal() {
+        String directory = config.getJournalDir();
+        if (directory == null || directory.isEmpty()) {
+            return null;
+        }
+
+        MoveJournal opened = null;
+        try {
+            opened = new MoveJournal(Paths.get(directory), config.getJournalSegmentBytes(),
+                    config.getJournalSyncMs(), TimeUnit.MILLISECONDS);
+            for (MoveJournal.RecoveredGame game : opened.recover()) {
+                suspendGame(game);
+            }
+            return opened;
+        } catch (IOException e) {
+            logger.error("Move journal disabled, cannot open {}: {}", directory, e.getMessage());
+            if (opened != null) {
+                opened.close();
+            }
+            return null;
+        }
+    }
+
+    private void suspendGame(MoveJournal.RecoveredGame game) {
+        int number = game.getSessionNumber();
+        SuspendedGame suspended = new SuspendedGame(number, game);
+        suspendedGames.putIfAbsent(game.getHostName(), suspended);
+        suspendedGames.putIfAbsent(game.getGuestName(), suspended);
+        sessionIdCounter.accumulateAndGet(number + 1, Math::max);
+
+        long wait = Math.max(idleTimeoutNanos, TimeUnit.MINUTES.toNanos(1));
+        suspended.setExpiry(timingWheel.schedule(() -> expireSuspendedGame(suspended),
+                wait, TimeUnit.NANOSECONDS));
+        logger.info("Recovered session {} ({} vs {}, {} moves), waiting for players to reconnect",
+                GameSession.formatId(suspended.getSessionId()), game.getHostName(), game.getGuestName(),
+                game.getMoves().length);
+    }
+
+    /**
+     * Seat a reconnecting player in their recovered game; once both are back
+     * the board is replayed and play continues where the journal left off
+     */
+    private void resumeSuspendedGame(Player player) {
+        SuspendedGame suspended = suspendedGames.get(player.getPlayerName());
+        if (suspended == null) {
+            return;
+        }
+
+        switch (suspended.attach(player)) {
+            case WAITING:
+                player.setCurrentSessionId(suspended.getSessionId());
+                player.sendMessage(MessageProtocol.SESSION_RESUMING + ":" + GameSession.formatId(suspended.getSessionId()) + ":" +
+                        suspended.getOpponentName(player));
+                return;
+
+            case READY:
+                break;
+
+            default:
+                return;
+        }
+
+        MoveJournal.RecoveredGame game = suspended.getGame();
+        suspendedGames.remove(game.getHostName(), suspended);
+        suspendedGames.remove(game.getGuestName(), suspended);
+        timingWheel.cancel(suspended.getExpiry());
+
+        player.setCurrentSessionId(suspended.getSessionId());
+        resumeGame(suspended);
+    }
+
+    /**
+     * Replay the recovered moves into a new session and tell both players
+     * where the game stands. The session is built before it is published,
+     * so no event for it can run against a half-replayed board.
+     */
+    private void resumeGame(SuspendedGame suspended) {
+        MoveJournal.RecoveredGame game = suspended.getGame();
+        GameSession session = new GameSession(suspended.getSessionId(), suspended.getHost(), suspended.getGuest(),
+                game.getRules());
+        StringBuilder moves = new StringBuilder();
+        String outcome = null;
+        boolean black = true;
+        for (int cell : game.getMoves()) {
+            int row = cell / GameBoard.SIZE;
+            int col = cell % GameBoard.SIZE;
+            GameBoard.MoveResult result = session.getBoard().place(row, col, black);
+            moves.append(moves.length() == 0 ? "" : ";").append(row).append(',').append(col);
+
+            if (result == GameBoard.MoveResult.WIN || result == GameBoard.MoveResult.DRAW) {
+                outcome = result == GameBoard.MoveResult.DRAW ? "draw" : black ? "black" : "white";
+                session.setGameOver(true);
+                break;
+            }
+            session.switchTurn();
+            black = !black;
+        }
+        activeSessions.put(session.getId(), session);
+
+        announceRules(session);
+        session.sendToPlayer(session.getPlayer1(), MessageProtocol.SESSION_RESUMED + ":" + session.getSessionId() +
+                ":black:" + session.getPlayer2().getPlayerName() + ":" + moves);
+        session.sendToPlayer(session.getPlayer2(), MessageProtocol.SESSION_RESUMED + ":" + session.getSessionId() +
+                ":white:" + session.getPlayer1().getPlayerName() + ":" + moves);
+        session.broadcast(outcome != null ? "GAME_OVER:" + outcome
+                : MessageProtocol.formatTurnChange(session.isBlackTurn()));
+
+        logger.info("Session {} resumed after {} moves", session.getSessionId(), session.getBoard().getMoveCount());
+    }
+
+    /**
+     * Drop a recovered game whose players did not both come back in time
+     */
+    private void expireSuspendedGame(SuspendedGame suspended) {
+        if (!suspended.expire()) {
+            return;
+        }
+
+        MoveJournal.RecoveredGame game = suspended.getGame();
+        suspendedGames.remove(game.getHostName(), suspended);
+        suspendedGames.remove(game.getGuestName(), suspended);
+        journal.sessionEnded(game.getSessionNumber());
+
+        Player waiting = suspended.getWaitingPlayer();
+        if (waiting != null) {
+            waiting.setCurrentSessionId(Player.NO_SESSION);
+            waiting.sendMessage("OPPONENT_DISCONNECTED");
+        }
+        logger.info("Recovered session {} expired", GameSession.formatId(suspended.getSessionId()));
+    }
+
+    private static ServerConfig defaultConfig(int port, int maxPlayers) {
+        ServerConfig config = new ServerConfig(false);
+        config.setPort(port);
+        config.setMaxPlayers(maxPlayers);
+        return config;
+    }
+
+    private static String[] opcodeLabels() {
+        String[] labels = new String[Opcode.COUNT];
+        for (Opcode opcode : Opcode.VALUES) {
+            labels[opcode.ordinal()] = opcode.name().toLowerCase();
+        }
+        return labels;
+    }
+
+    /**
+     * Gauges read the live maps and queues only when scraped
+     */
+    private void registerGauges() {
+        metrics.gauge("gobang_connected_players", "Players past the handshake", connectedPlayers::size);
+        metrics.gauge("gobang_open_connections", "Client connections holding an admission slot",
+                admission::getAdmitted);
+        metrics.gauge("gobang_active_sessions", "Sessions waiting or in play", activeSessions::size);
+        metrics.gauge("gobang_waiting_sessions", "Sessions waiting for a second player", waitingPlayers::size);
+        metrics.gauge("gobang_outbound_queue_messages", "Messages queued for all players", () -> {
+            long total = 0;
+            for (Player player : connectedPlayers) {
+                total += player.getOutboundQueue().size();
+            }
+            return total;
+        });
+        metrics.gauge("gobang_outbound_queue_max_messages", "Deepest outbound queue of any player", () -> {
+            long max = 0;
+            for (Player player : connectedPlayers) {
+                max = Math.max(max, player.getOutboundQueue().size());
+            }
+            return max;
+        });
+        metrics.gauge("gobang_outbound_queue_bytes", "Unsent bytes for all players", () -> {
+            long total = 0;
+            for (Player player : connectedPlayers) {
+                total += player.getOutboundQueue().getQueuedBytes();
+            }
+            return total;
+        });
+        metrics.counter("gobang_lobby_updates_coalesced_total", "Lobby updates replaced by a snapshot",
+                outboundPolicy::getLobbyCoalesced);
+        metrics.counter("gobang_lobby_updates_dropped_total", "Lobby updates dropped for slow clients",
+                outboundPolicy::getLobbyDropped);
+        metrics.counter("gobang_game_messages_dropped_total", "In-game messages dropped for slow clients",
+                outboundPolicy::getGameDropped);
+        metrics.counter("gobang_slow_consumer_disconnects_total", "Players disconnected as slow consumers",
+                outboundPolicy::getSlowDisconnects);
+        metrics.gauge("gobang_session_tasks_pending", "Session events waiting in mailboxes",
+                sessionWorkers::getPendingTasks);
+        metrics.counter("gobang_session_tasks_total", "Session events run by the session workers",
+                sessionWorkers::getTasksRun);
+        metrics.counter("gobang_session_drains_yielded_total", "Mailbox drains that hit the batch limit",
+                sessionWorkers::getDrainsYielded);
+        metrics.gauge("gobang_connection_buffer_bytes", "Read, write and outbound queue bytes held for players",
+                () -> getMemoryFootprint().getBufferBytes());
+        metrics.gauge("gobang_connection_buffer_max_bytes", "Most buffer bytes held for any one player",
+                () -> getMemoryFootprint().getMaxBufferBytes());
+        metrics.gauge("gobang_heap_live_bytes", "Heap in use after the last garbage collection",
+                ConnectionFootprint::liveHeapBytes);
+        metrics.gauge("gobang_heap_bytes_per_connection", "Live heap divided by open connections",
+                () -> getMemoryFootprint().getHeapBytesPerConnection());
+        metrics.gauge("gobang_buffer_pool_in_use_bytes", "Pooled I/O buffer bytes leased to connections",
+                bufferPool::getInUseBytes);
+        metrics.gauge("gobang_buffer_pool_idle_bytes", "Released I/O buffer bytes kept for reuse",
+                bufferPool::getIdleBytes);
+        metrics.gauge("gobang_buffer_pool_utilization_percent", "Share of pooled buffer memory leased out",
+                bufferPool::getUtilizationPercent);
+        metrics.gauge("gobang_buffer_pool_leases", "Pooled I/O buffers currently leased", bufferPool::getLeases);
+        metrics.counter("gobang_buffer_pool_acquires_total", "I/O buffers leased from the pool",
+                bufferPool::getAcquires);
+        metrics.counter("gobang_buffer_pool_allocations_total", "Leases that had to allocate a new buffer",
+                bufferPool::getAllocations);
+        metrics.counter("gobang_buffer_pool_oversize_total", "Leases too large for the pool, served from the heap",
+                bufferPool::getOversize);
+        metrics.counter("gobang_buffer_pool_discards_total", "Released buffers dropped at the idle cap",
+                bufferPool::getDiscards);
+        metrics.counter("gobang_buffer_pool_leaks_total", "Sampled buffers collected without being released",
+                bufferPool::getLeaks);
+        metrics.counter("gobang_buffer_pool_double_releases_total", "Buffers released more than once",
+                bufferPool::getDoubleReleases);
+        if (cluster != null) {
+            metrics.gauge("gobang_cluster_peers_connected", "Cluster peers with a live outbound link",
+                    cluster::getConnectedPeerCount);
+            metrics.gauge("gobang_cluster_routed_players", "Local players whose game lives on a peer",
+                    cluster::getRoutedPlayerCount);
+            metrics.gauge("gobang_cluster_proxy_players", "Players of peers playing on this node",
+                    cluster::getProxyCount);
+            metrics.counter("gobang_cluster_forwarded_commands_total", "Commands forwarded to peers",
+                    cluster::getForwardedCommands);
+        }
+        metrics.counter("gobang_ai_searches_total", "Moves chosen by the computer opponent",
+                () -> ai != null ? ai.getSearches() : 0);
+        metrics.counter("gobang_ai_nodes_total", "Positions searched by the computer opponent",
+                () -> ai != null ? ai.getNodes() : 0);
+        metrics.gauge("gobang_matchmaking_queued", "Players waiting in the matchmaking queue",
+                matchmaker::getQueuedCount);
+        metrics.counter("gobang_matches_total", "Games started by the matchmaker", matchmaker::getMatchCount);
+    }
+
+    /**
+     * Executor for blocking per-connection work (reader loops and socket writes). Virtual threads are
+     * looked up reflectively so the build stays on Java 17; older runtimes fall
+     * back to the cached platform pool.
+     */
+    private static ExecutorService createClientExecutor(boolean virtualThreads) {
+        if (virtualThreads) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                ExecutorService executor = (ExecutorService) factory.invoke(null);
+                logger.info("Client connections will run on virtual threads");
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                logger.warn("Virtual threads require Java 21+ (running {}), using platform threads",
+                        Runtime.version().feature());
+            }
+        }
+        return Executors.newCachedThreadPool();
     }
 
     public void start() {
         logger.info("Starting Gobang Game Server on port {}...", port);
 
+        if (config.isNioTransport()) {
+            startNio();
+            return;
+        }
+
         try {
             serverSocket = new ServerSocket(port);
             serverSocket.setReuseAddress(true);
             isRunning = true;
 
             logger.info("Server started successfully. Waiting for connections...");
+            if (config.isLeanConnections()) {
+                logger.info("Lean connections on the blocking transport still hold a thread and a read " +
+                        "buffer per client; use server.transport=nio for large numbers of idle clients");
+            }
 
-            // Start session monitor thread
-            startSessionMonitor();
+            // Start idle/heartbeat timer
+            timingWheel.start();
+            sessionWorkers.start();
+            matchmaker.start(config.getMatchmakingTickMs(), TimeUnit.MILLISECONDS);
+            startMetricsEndpoint();
+            startCluster();
 
             // Main connection loop
             while (isRunning) {
                 try {
                     Socket clientSocket = serverSocket.accept();
 
-                    if (connectedPlayers.size() >= maxPlayers) {
-                        logger.warn("Max players reached. Rejecting connection from {}",
-                                clientSocket.getInetAddress());
+                    if (!admit(clientSocket.getInetAddress())) {
                         clientSocket.close();
                         continue;
                     }
@@ -88,49 +444,177 @@ public class GameServer {
         }
     }
 
+    /**
+     * Claim an admission slot for a freshly accepted connection, counting the rejection if there is none
+     */
+    private boolean admit(InetAddress address) {
+        switch (admission.tryAdmit(address)) {
+            case SERVER_FULL:
+                logger.warn("Max players reached. Rejecting connection from {}", address);
+                rejectedConnections.increment();
+                return false;
+
+            case ADDRESS_LIMIT:
+                logger.debug("Connection limit reached for {}. Rejecting connection", address);
+                rejectedByAddress.increment();
+                return false;
+
+            default:
+                acceptedConnections.increment();
+                return true;
+        }
+    }
+
+    /**
+     * Serve /metrics when a metrics port is configured; failure to bind is not fatal
+     */
+    private void startMetricsEndpoint() {
+        int metricsPort = config.getMetricsPort();
+        if (metricsPort <= 0) {
+            return;
+        }
+        try {
+            metricsServer.start(config.getMetricsBindAddress(), metricsPort);
+        } catch (IOException e) {
+            logger.error("Failed to start metrics endpoint on port {}: {}", metricsPort, e.getMessage());
+        }
+    }
+
+    /**
+     * Join the cluster when configured; a node that cannot bind its peer port runs standalone
+     */
+    private void startCluster() {
+        if (cluster == null) {
+            return;
+        }
+        try {
+            cluster.start();
+        } catch (IOException e) {
+            logger.error("Failed to start cluster node {} on port {}: {}", cluster.getNodeId(),
+                    config.getClusterPort(), e.getMessage());
+        }
+    }
+
+    /**
+     * Accept loop for the non-blocking transport; reads and writes happen on the event loops
+     */
+    private void startNio() {
+        try {
+            nioServer = new NioServer(this, bufferPool, config.getIoThreads(), config.isLeanConnections());
+            nioServer.bind(port);
+            isRunning = true;
+
+            logger.info("Server started successfully (NIO). Waiting for connections...");
+
+            timingWheel.start();
+            sessionWorkers.start();
+            matchmaker.start(config.getMatchmakingTickMs(), TimeUnit.MILLISECONDS);
+            startMetricsEndpoint();
+            startCluster();
+
+            while (isRunning) {
+                try {
+                    SocketChannel channel = nioServer.accept();
+
+                    InetAddress address = channel.socket().getInetAddress();
+                    if (!admit(address)) {
+                        channel.close();
+                        continue;
+                    }
+
+                    int playerId = nextPlayerId();
+                    NioConnection connection = nioServer.register(channel, playerId, () -> admission.release(address));
+                    scheduleHandshakeTimeout(playerId, connection);
+                    logger.info("New connection from {} assigned ID: P{}",
+                            connection.getRemoteAddress(), playerId);
+
+                } catch (IOException e) {
+                    if (isRunning) {
+                        logger.error("Error accepting client connection: {}", e.getMessage());
+                    }
+                }
+            }
+
+        } catch (IOException e) {
+            logger.error("Failed to start server on port {}: {}", port, e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Called on an event loop for every complete line received on a NIO connection
+     */
+    void onNioMessage(NioConnection connection, CharSequence message, Command command) {
+        Player player = connection.getPlayer();
+
+        if (player == null) {
+            player = completeHandshake(connection.getPlayerId(), connection, message.toString());
+            if (player == null) {
+                connection.close();
+            } else {
+                connection.setPlayer(player);
+            }
+            return;
+        }
+
+        if (player.isActive()) {
+            logger.debug("Received from {}: {}", player, message);
+            processClientMessage(player, message, command);
+        }
+    }
+
+    /**
+     * Called on an event loop for every binary frame received after a binary handshake
+     */
+    void onNioCommand(NioConnection connection, Command command) {
+        Player player = connection.getPlayer();
+        if (player != null && player.isActive()) {
+            logger.debug("Received from {}: {}", player, command.getOpcode());
+            processCommand(player, command, null);
+        }
+    }
+
+    /**
+     * Called on an event loop when a NIO connection is closed by the peer or fails
+     */
+    void onNioDisconnect(NioConnection connection) {
+        Player player = connection.getPlayer();
+
+        if (player != null && player.isActive()) {
+            cleanupPlayer(player);
+        } else {
+            connection.close();
+        }
+    }
+
     private void handleClientConnection(Socket clientSocket) {
-        String playerId = "P" + playerIdCounter.getAndIncrement();
+        int playerId = nextPlayerId();
         Player player = null;
 
         try {
-            logger.info("New connection from {}:{} assigned ID: {}",
+            logger.info("New connection from {}:{} assigned ID: P{}",
                     clientSocket.getInetAddress(), clientSocket.getPort(), playerId);
 
             // First message should be player info
-            BufferedReader input = new BufferedReader(
-                    new InputStreamReader(clientSocket.getInputStream()));
+            SocketConnection connection = new SocketConnection(clientSocket, writerExecutor,
+                    config.isLeanConnections());
+            scheduleHandshakeTimeout(playerId, connection);
 
-            String initialMessage = input.readLine();
+            String initialMessage = connection.readHandshake();
             if (initialMessage == null) {
                 logger.warn("Client disconnected before sending initial message");
                 clientSocket.close();
                 return;
             }
 
-            // Parse initial message: PLAYER_INFO:name:isHost
-            String[] parts = initialMessage.split(":", 3);
-            if (!parts[0].equals("PLAYER_INFO") || parts.length < 3) {
-                logger.warn("Invalid initial message from client: {}", initialMessage);
-                sendErrorMessage(clientSocket, "Invalid initial handshake");
-                clientSocket.close();
+            player = completeHandshake(playerId, connection, initialMessage);
+            if (player == null) {
+                connection.close();
                 return;
             }
 
-            String playerName = parts[1];
-            boolean isHost = Boolean.parseBoolean(parts[2]);
-
-            // Create player object
-            player = new Player(playerId, playerName, clientSocket, isHost);
-            connectedPlayers.put(playerId, player);
-
-            // Send connection confirmation
-            player.sendMessage("CONNECTED:" + playerId);
-
-            logger.info("Player connected: {} (ID: {}, Host: {})",
-                    playerName, playerId, isHost);
-
             // Handle player messages
-            handlePlayerMessages(player);
+            handlePlayerMessages(player, connection);
 
         } catch (Exception e) {
             logger.error("Error handling client connection: {}", e.getMessage());
@@ -143,17 +627,65 @@ public class GameServer {
                     // Ignore
                 }
             }
+        } finally {
+            // The connection's thread only returns once the socket is done with
+            admission.release(clientSocket.getInetAddress());
         }
     }
 
-    private void handlePlayerMessages(Player player) {
+    /**
+     * Validate the PLAYER_INFO handshake and register the player, or send an error and return null.
+     * Package-private so benchmarks can register in-memory players.
+     */
+    Player completeHandshake(int playerId, Connection connection, String initialMessage) {
+        // Parse initial message: PLAYER_INFO:name:isHost[:binary]
+        String[] parts = initialMessage.split(":", 4);
+        if (!parts[0].equals("PLAYER_INFO") || parts.length < 3) {
+            logger.warn("Invalid initial message from client: {}", initialMessage);
+            connection.send("ERROR:Invalid initial handshake");
+            return null;
+        }
+
+        String playerName = parts[1];
+        boolean isHost = Boolean.parseBoolean(parts[2]);
+        // Switched before anything is queued, so CONNECTED is already a binary frame
+        boolean binary = parts.length > 3 && parts[3].equals("binary") && connection.enableBinary();
+
+        // Create player object
+        Player player = new Player(playerId, playerName, connection, isHost, outboundPolicy);
+        player.setSlowConsumerHandler(slowConsumerHandler);
+        connectedPlayers.put(playerId, player);
+
+        // Send connection confirmation
+        player.sendMessage("CONNECTED:" + player.getPlayerId() + (binary ? ":binary" : ""));
+        scheduleIdleCheck(player, nextIdleCheckNanos(0));
+        if (!suspendedGames.isEmpty()) {
+            resumeSuspendedGame(player);
+        }
+
+        logger.info("Player connected: {} (ID: {}, Host: {}, Protocol: {})",
+                playerName, playerId, isHost, binary ? "binary" : "text");
+
+        return player;
+    }
+
+    private void handlePlayerMessages(Player player, SocketConnection connection) {
         try {
-            BufferedReader input = player.getInputStream();
-            String message;
+            Command command = new Command();
+
+            if (connection.isBinary()) {
+                while (player.isActive() && connection.readCommand(command)) {
+                    logger.debug("Received from {}: {}", player, command.getOpcode());
+                    processCommand(player, command, null);
+                }
+                return;
+            }
 
+            LineReader input = connection.getReader();
+            CharSequence message;
             while (player.isActive() && (message = input.readLine()) != null) {
-                logger.debug("Received from {}: {}", player.getPlayerId(), message);
-                processClientMessage(player, message);
+                logger.debug("Received from {}: {}", player, message);
+                processClientMessage(player, message, command);
             }
 
         } catch (IOException e) {
@@ -165,122 +697,241 @@ public class GameServer {
         }
     }
 
-    private void processClientMessage(Player player, String message) {
-        String[] parts = message.split(":", 2);
-        String command = parts[0];
-        String data = parts.length > 1 ? parts[1] : "";
-
-        switch (command) {
-            case "CREATE_SESSION":
-                handleCreateSession(player, data);
-                break;
-
-            case "JOIN_SESSION":
-                handleJoinSession(player, data);
-                break;
-
-            case "MOVE":
-                handleMove(player, data);
-                break;
-
-            case "CHAT":
-                handleChat(player, data);
-                break;
-
-            case "RESTART":
-                handleRestart(player);
-                break;
+    /**
+     * Build the opcode-indexed dispatch table once; handlers that need text
+     * arguments materialize them from the command on demand
+     */
+    private CommandHandler[] createHandlers() {
+        CommandHandler[] table = new CommandHandler[Opcode.COUNT];
+        table[Opcode.CREATE_SESSION.ordinal()] = (player, command) -> handleCreateSession(player, command.argument());
+        table[Opcode.JOIN_SESSION.ordinal()] = (player, command) -> handleJoinSession(player, command.argument());
+        table[Opcode.MOVE.ordinal()] = (player, command) -> {
+            int row = command.getRow();
+            int col = command.getCol();
+            onSession(player, () -> {
+                long start = System.nanoTime();
+                handleMove(player, row, col);
+                moveLatency.recordNanos(System.nanoTime() - start);
+            });
+        };
+        table[Opcode.CHAT.ordinal()] = (player, command) -> {
+            String chatMessage = command.argument();
+            onSession(player, () -> handleChat(player, chatMessage));
+        };
+        table[Opcode.RESTART.ordinal()] = (player, command) -> onSession(player, () -> handleRestart(player));
+        table[Opcode.DISCONNECT.ordinal()] = (player, command) -> handleDisconnect(player);
+        table[Opcode.LIST_SESSIONS.ordinal()] = (player, command) -> handleListSessions(player);
+        table[Opcode.GET_PLAYER_INFO.ordinal()] = (player, command) -> handleGetPlayerInfo(player);
+        table[Opcode.SPECTATE.ordinal()] = (player, command) -> handleSpectate(player, command.argument());
+        table[Opcode.UNSPECTATE.ordinal()] = (player, command) -> handleUnspectate(player);
+        table[Opcode.QUEUE.ordinal()] = (player, command) -> handleQueue(player);
+        table[Opcode.LEAVE_QUEUE.ordinal()] = (player, command) -> handleLeaveQueue(player);
+        table[Opcode.PLAY_AI.ordinal()] = (player, command) -> handlePlayAi(player);
+        table[Opcode.PONG.ordinal()] = (player, command) -> {
+            // Receiving it already refreshed the player's activity deadline
+        };
+        table[Opcode.UNKNOWN.ordinal()] = (player, command) -> {
+            logger.warn("Unknown command from player {}: {}", player.getPlayerId(), command.verb());
+            player.sendMessage("ERROR:Unknown command");
+        };
+        return table;
+    }
 
-            case "DISCONNECT":
-                handleDisconnect(player);
-                break;
+    /**
+     * Decode a line into the caller's reusable command and dispatch it.
+     * Package-private so benchmarks can drive it without sockets.
+     */
+    void processClientMessage(Player player, CharSequence message, Command command) {
+        CommandDecoder.decode(message, command);
+        processCommand(player, command, message);
+    }
 
-            case "LIST_SESSIONS":
-                handleListSessions(player);
-                break;
+    /**
+     * Rate-limit, relay or dispatch a decoded command. The line is the text
+     * it was decoded from, or null for a binary frame.
+     */
+    void processCommand(Player player, Command command, CharSequence line) {
+        player.touch();
+
+        int opcode = command.getOpcode().ordinal();
+        commandCounts[opcode].increment();
+        if (!rateLimits.tryAcquire(player, command.getOpcode())) {
+            rateLimitedCommands[opcode].increment();
+            player.sendMessage("ERROR:Rate limited");
+            return;
+        }
+        if (cluster != null && cluster.isRouted(player) && !isNodeLocal(command.getOpcode())) {
+            cluster.forward(player, line != null ? line : command.toLine());
+            return;
+        }
+        handlers[opcode].handle(player, command);
+    }
 
-            case "GET_PLAYER_INFO":
-                handleGetPlayerInfo(player);
-                break;
+    /**
+     * Commands answered by the node the client is connected to, even while its game lives on a peer
+     */
+    private static boolean isNodeLocal(Opcode opcode) {
+        return opcode == Opcode.PONG || opcode == Opcode.LIST_SESSIONS || opcode == Opcode.GET_PLAYER_INFO
+                || opcode == Opcode.DISCONNECT;
+    }
 
-            default:
-                logger.warn("Unknown command from player {}: {}", player.getPlayerId(), command);
-                player.sendMessage("ERROR:Unknown command");
+    /**
+     * Post an in-game command to the mailbox of the player's session. The
+     * task is dropped with an error if the player has left that session by
+     * the time it runs.
+     */
+    private void onSession(Player player, Runnable task) {
+        int sessionId = player.getCurrentSessionId();
+        GameSession session = sessionId != Player.NO_SESSION ? activeSessions.get(sessionId) : null;
+        if (session == null) {
+            player.sendMessage("ERROR:Not in a session");
+            return;
         }
+
+        sessionWorkers.execute(session, () -> {
+            if (sessionId == player.getCurrentSessionId()) {
+                task.run();
+            } else {
+                player.sendMessage("ERROR:Not in a session");
+            }
+        });
     }
 
-    private void handleCreateSession(Player player, String sessionName) {
+    /**
+     * CREATE_SESSION:name[:rules], where rules is freestyle, standard or renju
+     */
+    private void handleCreateSession(Player player, String argument) {
         if (!player.isHost()) {
             player.sendMessage("ERROR:Only hosts can create sessions");
             return;
         }
 
-        if (player.getCurrentSessionId() != null) {
+        if (player.isInSession()) {
             player.sendMessage("ERROR:Already in a session");
             return;
         }
 
-        String sessionId = "S" + sessionIdCounter.getAndIncrement();
-        GameSession session = new GameSession(sessionId, player, null);
+        if (!leaveQueue(player)) {
+            player.sendMessage("ERROR:Match found");
+            return;
+        }
+
+        int split = argument.lastIndexOf(':');
+        RuleVariant named = split >= 0 ? RuleVariant.fromName(argument.substring(split + 1)) : null;
+        RuleVariant rules = named != null ? named : defaultRules;
+        String sessionName = named != null ? argument.substring(0, split) : argument;
+
+        // Set up before it is published; every event after that goes through its mailbox
+        int sessionId = nextSessionId();
+        stopSpectating(player);
+        GameSession session = new GameSession(sessionId, player, null, rules);
+        if (journal != null) {
+            journal.sessionCreated(sessionId, player.getPlayerName(), rules);
+        }
         activeSessions.put(sessionId, session);
+        addWaitingSession(sessionId, player);
 
-        player.setCurrentSessionId(sessionId);
-        waitingPlayers.put(sessionId, player);
+        player.sendMessage("SESSION_CREATED:" + session.getSessionId() + ":" + sessionName);
+        logger.info("Session created: {} by player {}", session.getSessionId(), player.getPlayerId());
+    }
 
-        player.sendMessage("SESSION_CREATED:" + sessionId + ":" + sessionName);
-        logger.info("Session created: {} by player {}", sessionId, player.getPlayerId());
+    /**
+     * A fresh session ID; in a cluster, one that hashes to this node
+     */
+    private int nextSessionId() {
+        if (cluster != null) {
+            return cluster.mintSessionId(sessionIdCounter::getAndIncrement);
+        }
+        return sessionIdCounter.getAndIncrement();
+    }
 
-        // Broadcast session list update
-        broadcastSessionList();
+    /**
+     * A fresh player ID, for accepted connections and for players the server creates itself
+     */
+    int nextPlayerId() {
+        return playerIdCounter.getAndIncrement();
     }
 
-    private void handleJoinSession(Player player, String sessionId) {
-        if (player.getCurrentSessionId() != null) {
+    private void handleJoinSession(Player player, String argument) {
+        if (player.isInSession()) {
             player.sendMessage("ERROR:Already in a session");
             return;
         }
 
-        if (!activeSessions.containsKey(sessionId)) {
+        int sessionId = GameSession.parseId(argument);
+        if (sessionId <= 0) {
             player.sendMessage("ERROR:Session not found");
             return;
         }
 
+        if (cluster != null && !cluster.owns(sessionId)) {
+            if (!leaveQueue(player)) {
+                player.sendMessage("ERROR:Match found");
+                return;
+            }
+            stopSpectating(player);
+            if (!cluster.routeTo(player, sessionId, MessageProtocol.JOIN_SESSION + ":" + argument)) {
+                player.sendMessage("ERROR:Session not found");
+            }
+            return;
+        }
+
         GameSession session = activeSessions.get(sessionId);
+        if (session == null) {
+            player.sendMessage("ERROR:Session not found");
+            return;
+        }
 
-        if (session.getPlayer2() != null) {
+        if (!session.hasRoom()) {
             player.sendMessage("ERROR:Session is full");
             return;
         }
 
-        // Add player to session
-        session.sendToPlayer(session.getPlayer1(), "PLAYER_JOINED:" + player.getPlayerName());
+        if (!leaveQueue(player)) {
+            player.sendMessage("ERROR:Match found");
+            return;
+        }
+
         player.setCurrentSessionId(sessionId);
+        sessionWorkers.execute(session, () -> joinSession(player, session));
+    }
 
-        // Remove from waiting players
-        waitingPlayers.remove(sessionId);
+    /**
+     * Seat the joiner, from the session's mailbox; the caller has already
+     * pointed the player at the session. The seat itself is taken by CAS,
+     * so only one of several concurrent joiners wins it.
+     */
+    private void joinSession(Player player, GameSession session) {
+        int sessionId = session.getId();
+        if (!session.join(player)) {
+            player.setCurrentSessionId(Player.NO_SESSION);
+            boolean gone = session.getState() == GameSession.State.FINISHED;
+            player.sendMessage(gone ? "ERROR:Session not found" : "ERROR:Session is full");
+            return;
+        }
 
-        // Update session with player2
-        // Note: We need to modify GameSession to set player2
-        // For now, we'll create a new session with both players
-        GameSession newSession = new GameSession(sessionId, session.getPlayer1(), player);
-        newSession.setGameStarted(true);
-        activeSessions.put(sessionId, newSession);
+        stopSpectating(player);
+        session.sendToPlayer(session.getPlayer1(), "PLAYER_JOINED:" + player.getPlayerName());
+        removeWaitingSession(sessionId);
+        if (journal != null) {
+            journal.sessionJoined(sessionId, player.getPlayerName());
+        }
 
         // Send start game messages to both players
-        newSession.sendToPlayer(newSession.getPlayer1(),
+        announceRules(session);
+        session.sendToPlayer(session.getPlayer1(),
                 "GAME_START:black:" + player.getPlayerName() + ":white");
-        newSession.sendToPlayer(newSession.getPlayer2(),
-                "GAME_START:white:" + newSession.getPlayer1().getPlayerName() + ":black");
-
-        logger.info("Player {} joined session {}", player.getPlayerId(), sessionId);
+        session.sendToPlayer(player,
+                "GAME_START:white:" + session.getPlayer1().getPlayerName() + ":black");
+        session.broadcastToSpectators(MessageProtocol.SPECTATE_START + ":" +
+                session.getPlayer1().getPlayerName() + ":" + player.getPlayerName());
 
-        // Broadcast session list update
-        broadcastSessionList();
+        logger.info("Player {} joined session {}", player.getPlayerId(), session.getSessionId());
     }
 
-    private void handleMove(Player player, String moveData) {
-        String sessionId = player.getCurrentSessionId();
-        if (sessionId == null) {
+    private void handleMove(Player player, int row, int col) {
+        int sessionId = player.getCurrentSessionId();
+        if (sessionId == Player.NO_SESSION) {
             player.sendMessage("ERROR:Not in a session");
             return;
         }
@@ -291,27 +942,321 @@ public class GameServer {
             return;
         }
 
+        if (!session.isGameStarted()) {
+            player.sendMessage("ERROR:Game not started");
+            return;
+        }
+
+        if (session.isGameOver()) {
+            player.sendMessage("ERROR:Game is over");
+            return;
+        }
+
         if (session.getCurrentTurn() != player) {
             player.sendMessage("ERROR:Not your turn");
             return;
         }
 
+        // The decoder leaves -1 for malformed coordinates, which the board rejects
+        boolean black = session.isBlackTurn();
+        switch (session.getBoard().place(row, col, black)) {
+            case OUT_OF_BOUNDS:
+                player.sendMessage("ERROR:Invalid move");
+                return;
+
+            case OCCUPIED:
+                player.sendMessage("ERROR:Position occupied");
+                return;
+
+            case FORBIDDEN:
+                player.sendMessage("ERROR:Forbidden move");
+                return;
+
+            case WIN:
+                journalMove(session, row, col);
+                session.sendToOpponent(player, MessageProtocol.formatMoveMessage(row, col));
+                session.setGameOver(true);
+                session.broadcast("GAME_OVER:" + (black ? "black" : "white"));
+                spectateMove(session, black, row, col);
+                session.broadcastToSpectators("GAME_OVER:" + (black ? "black" : "white"));
+                recordResult(session, player, false);
+                logger.info("Session {} won by player {}", session.getSessionId(), player.getPlayerId());
+                return;
+
+            case DRAW:
+                journalMove(session, row, col);
+                session.sendToOpponent(player, MessageProtocol.formatMoveMessage(row, col));
+                session.setGameOver(true);
+                session.broadcast("GAME_OVER:draw");
+                spectateMove(session, black, row, col);
+                session.broadcastToSpectators("GAME_OVER:draw");
+                recordResult(session, player, true);
+                logger.info("Session {} ended in a draw", session.getSessionId());
+                return;
+
+            default:
+                break;
+        }
+        journalMove(session, row, col);
+
         // Forward move to opponent
-        session.sendToOpponent(player, "MOVE:" + moveData);
+        session.sendToOpponent(player, MessageProtocol.formatMoveMessage(row, col));
 
         // Switch turn
         session.switchTurn();
 
         // Notify both players of turn change
-        session.broadcast("TURN_CHANGE:" +
-                (session.getCurrentTurn() == session.getPlayer1() ? "black" : "white"));
+        session.broadcast(MessageProtocol.formatTurnChange(session.getCurrentTurn() == session.getPlayer1()));
+        spectateMove(session, black, row, col);
+
+        logger.debug("Move processed in session {} by player {}", session.getSessionId(), player.getPlayerId());
+    }
+
+    /**
+     * RULES:variant to both players ahead of GAME_START; freestyle games,
+     * the protocol's original rules, send nothing
+     */
+    private static void announceRules(GameSession session) {
+        if (session.getRules() != RuleVariant.FREESTYLE) {
+            session.broadcast(MessageProtocol.RULES + ":" + session.getRules().getName());
+        }
+    }
+
+    /**
+     * Update both players' ratings; the mover is the winner unless it was a draw
+     */
+    private void recordResult(GameSession session, Player mover, boolean draw) {
+        Player opponent = session.getOpponent(mover);
+        if (opponent != null && !mover.isBot() && !opponent.isBot()) {
+            matchmaker.recordResult(mover, opponent, draw);
+        }
+    }
+
+    /**
+     * SPECTATE_MOVE:moveNumber:colour:row,col, encoded once for all spectators
+     */
+    private static void spectateMove(GameSession session, boolean black, int row, int col) {
+        if (session.getSpectatorCount() > 0) {
+            session.broadcastToSpectators(MessageProtocol.SPECTATE_MOVE + ":" +
+                    session.getBoard().getMoveCount() + ":" + (black ? "black" : "white") + ":" + row + "," + col);
+        }
+    }
+
+    private void handleSpectate(Player player, String argument) {
+        if (player.isInSession()) {
+            player.sendMessage("ERROR:Already in a session");
+            return;
+        }
+
+        int sessionId = GameSession.parseId(argument);
+        if (sessionId <= 0) {
+            player.sendMessage("ERROR:Session not found");
+            return;
+        }
+
+        if (cluster != null && !cluster.owns(sessionId)) {
+            stopSpectating(player);
+            if (!cluster.routeTo(player, sessionId, MessageProtocol.SPECTATE + ":" + argument)) {
+                player.sendMessage("ERROR:Session not found");
+            }
+            return;
+        }
+
+        GameSession session = activeSessions.get(sessionId);
+        if (session == null) {
+            player.sendMessage("ERROR:Session not found");
+            return;
+        }
+
+        // The snapshot has to be taken where the board is written
+        sessionWorkers.execute(session, () -> {
+            if (session.getState() == GameSession.State.FINISHED) {
+                player.sendMessage("ERROR:Session not found");
+                return;
+            }
+
+            stopSpectating(player);
+            player.setSpectatingSessionId(sessionId);
+            session.addSpectator(player);
+            logger.info("Player {} is spectating session {} ({} spectators)",
+                    player.getPlayerId(), session.getSessionId(), session.getSpectatorCount());
+        });
+    }
+
+    private void handleUnspectate(Player player) {
+        if (stopSpectating(player)) {
+            player.sendMessage(MessageProtocol.SPECTATE_ENDED);
+        }
+    }
+
+    /**
+     * Detach a player from the session it watches; false if it was not spectating
+     */
+    private boolean stopSpectating(Player player) {
+        int sessionId = player.getSpectatingSessionId();
+        if (sessionId == Player.NO_SESSION) {
+            return false;
+        }
+
+        GameSession session = activeSessions.get(sessionId);
+        if (session != null) {
+            session.removeSpectator(player);
+        }
+        player.setSpectatingSessionId(Player.NO_SESSION);
+        return true;
+    }
+
+    /**
+     * Tell every spectator of a removed session that it is over and release them
+     */
+    private static void endSpectating(GameSession session) {
+        for (Player spectator : session.getSpectators()) {
+            spectator.setSpectatingSessionId(Player.NO_SESSION);
+        }
+        session.broadcastToSpectators(MessageProtocol.SPECTATE_ENDED);
+        session.getSpectators().clear();
+    }
+
+    private void handleQueue(Player player) {
+        if (player.isInSession()) {
+            player.sendMessage("ERROR:Already in a session");
+            return;
+        }
+
+        if (player.getMatchTicket() != null) {
+            player.sendMessage("ERROR:Already queued");
+            return;
+        }
+
+        Matchmaker.Ticket ticket = matchmaker.enqueue(player);
+        player.setMatchTicket(ticket);
+        player.sendMessage(MessageProtocol.QUEUED + ":" + ticket.getRating());
+        logger.info("Player {} queued for a match at rating {}", player.getPlayerId(), ticket.getRating());
+    }
+
+    private void handleLeaveQueue(Player player) {
+        if (player.getMatchTicket() == null) {
+            player.sendMessage("ERROR:Not queued");
+            return;
+        }
+
+        if (leaveQueue(player)) {
+            player.sendMessage(MessageProtocol.QUEUE_LEFT);
+        }
+    }
+
+    /**
+     * Take a player out of the matchmaking queue; false if the matchmaker
+     * already paired them, in which case MATCH_FOUND is on its way
+     */
+    private boolean leaveQueue(Player player) {
+        Matchmaker.Ticket ticket = player.getMatchTicket();
+        if (ticket == null) {
+            return true;
+        }
+
+        if (!matchmaker.cancel(ticket)) {
+            return false;
+        }
+        player.setMatchTicket(null);
+        return true;
+    }
+
+    /**
+     * Start a game for two matched tickets, on the matchmaker thread. The
+     * longer-waiting player takes black. If either player left in the
+     * meantime the other goes straight back into the queue.
+     */
+    private void startMatchedGame(Matchmaker.Ticket first, Matchmaker.Ticket second) {
+        Player black = first.getPlayer();
+        Player white = second.getPlayer();
+        black.setMatchTicket(null);
+        white.setMatchTicket(null);
+
+        boolean blackReady = black.isActive() && !black.isInSession();
+        boolean whiteReady = white.isActive() && !white.isInSession();
+        if (!blackReady || !whiteReady) {
+            if (blackReady) {
+                black.setMatchTicket(matchmaker.enqueue(black));
+            }
+            if (whiteReady) {
+                white.setMatchTicket(matchmaker.enqueue(white));
+            }
+            return;
+        }
+
+        matchmakingWait.recordNanos(first.getWaitNanos());
+        matchmakingWait.recordNanos(second.getWaitNanos());
+
+        int sessionId = nextSessionId();
+        stopSpectating(black);
+        stopSpectating(white);
+        GameSession session = new GameSession(sessionId, black, white, defaultRules);
+        if (journal != null) {
+            journal.sessionCreated(sessionId, black.getPlayerName(), defaultRules);
+            journal.sessionJoined(sessionId, white.getPlayerName());
+        }
+        activeSessions.put(sessionId, session);
+
+        black.sendMessage(MessageProtocol.MATCH_FOUND + ":" + session.getSessionId() + ":" +
+                white.getPlayerName() + ":" + second.getRating());
+        white.sendMessage(MessageProtocol.MATCH_FOUND + ":" + session.getSessionId() + ":" +
+                black.getPlayerName() + ":" + first.getRating());
+        announceRules(session);
+        black.sendMessage("GAME_START:black:" + white.getPlayerName() + ":white");
+        white.sendMessage("GAME_START:white:" + black.getPlayerName() + ":black");
+
+        logger.info("Matched {} ({}) with {} ({}) in session {}", black.getPlayerId(), first.getRating(),
+                white.getPlayerId(), second.getRating(), session.getSessionId());
+    }
+
+    /**
+     * Start a game against the computer, which plays white
+     */
+    private void handlePlayAi(Player player) {
+        if (player.isInSession()) {
+            player.sendMessage("ERROR:Already in a session");
+            return;
+        }
+
+        if (!leaveQueue(player)) {
+            player.sendMessage("ERROR:Match found");
+            return;
+        }
+
+        stopSpectating(player);
+        BotConnection connection = new BotConnection(getAi());
+        Player bot = new Player(nextPlayerId(), BotConnection.BOT_NAME, connection,
+                false, outboundPolicy);
+        connection.setCommandSink(line -> processClientMessage(bot, line, new Command()));
+
+        GameSession session = new GameSession(nextSessionId(), player, bot, defaultRules);
+        activeSessions.put(session.getId(), session);
+        announceRules(session);
+
+        player.sendMessage("GAME_START:black:" + bot.getPlayerName() + ":white");
+        bot.sendMessage("GAME_START:white:" + player.getPlayerName() + ":black");
+        logger.info("Player {} started a game against the computer in session {}",
+                player.getPlayerId(), session.getSessionId());
+    }
 
-        logger.debug("Move processed in session {} by player {}", sessionId, player.getPlayerId());
+    private GomokuAI getAi() {
+        GomokuAI engine = ai;
+        if (engine == null) {
+            synchronized (this) {
+                engine = ai;
+                if (engine == null) {
+                    engine = GomokuAI.fromConfig(config);
+                    ai = engine;
+                }
+            }
+        }
+        return engine;
     }
 
     private void handleChat(Player player, String chatMessage) {
-        String sessionId = player.getCurrentSessionId();
-        if (sessionId == null) {
+        int sessionId = player.getCurrentSessionId();
+        if (sessionId == Player.NO_SESSION) {
             player.sendMessage("ERROR:Not in a session");
             return;
         }
@@ -322,15 +1267,40 @@ public class GameServer {
         }
     }
 
+    /**
+     * Games against the computer are not journaled; they cannot be resumed
+     */
+    private void journalMove(GameSession session, int row, int col) {
+        if (journal != null && session.getPlayer2() != null && !session.getPlayer2().isBot()) {
+            journal.moveAccepted(session.getId(), row, col);
+        }
+    }
+
     private void handleRestart(Player player) {
-        String sessionId = player.getCurrentSessionId();
-        if (sessionId == null) {
+        int sessionId = player.getCurrentSessionId();
+        if (sessionId == Player.NO_SESSION) {
             player.sendMessage("ERROR:Not in a session");
             return;
         }
 
         GameSession session = activeSessions.get(sessionId);
         if (session != null) {
+            Player opponent = session.getOpponent(player);
+
+            // A restart from the opponent of the requester accepts the request
+            if (opponent != null && session.getRestartRequestedBy() == opponent) {
+                session.resetGame();
+                if (journal != null) {
+                    journal.gameRestarted(sessionId);
+                }
+                session.broadcast("RESTART_ACCEPTED");
+                session.broadcastToSpectators("RESTART_ACCEPTED");
+                session.broadcast(MessageProtocol.TURN_CHANGE_BLACK);
+                logger.info("Session {} restarted", session.getSessionId());
+                return;
+            }
+
+            session.setRestartRequestedBy(player);
             session.sendToOpponent(player, "RESTART_REQUEST:" + player.getPlayerName());
         }
     }
@@ -340,132 +1310,239 @@ public class GameServer {
     }
 
     private void handleListSessions(Player player) {
-        StringBuilder sessionList = new StringBuilder("SESSION_LIST:");
+        LobbyIndex.Snapshot snapshot = lobbyIndex.getSnapshot();
+        player.setLobbyVersion(snapshot.getVersion());
+        player.sendMessage(snapshot.getListMessage());
+    }
 
-        for (String sessionId : waitingPlayers.keySet()) {
-            Player host = waitingPlayers.get(sessionId);
-            sessionList.append(sessionId).append(",")
-                    .append(host.getPlayerName()).append(";");
-        }
+    private void handleGetPlayerInfo(Player player) {
+        player.sendMessage("PLAYER_INFO:" + player.getPlayerId() + ":" +
+                player.getPlayerName() + ":" + player.isHost());
+    }
 
-        if (sessionList.length() > "SESSION_LIST:".length()) {
-            sessionList.setLength(sessionList.length() - 1); // Remove last semicolon
+    private void addWaitingSession(int sessionId, Player host) {
+        waitingPlayers.put(sessionId, host);
+        String listed = GameSession.formatId(sessionId);
+        if (lobbyIndex.add(listed, host.getPlayerName())) {
+            scheduleLobbyUpdate();
+            if (cluster != null) {
+                cluster.lobbyAdded(listed, host.getPlayerName());
+            }
         }
+    }
 
-        player.sendMessage(sessionList.toString());
+    private void removeWaitingSession(int sessionId) {
+        waitingPlayers.remove(sessionId);
+        String listed = GameSession.formatId(sessionId);
+        if (lobbyIndex.remove(listed)) {
+            scheduleLobbyUpdate();
+            if (cluster != null) {
+                cluster.lobbyRemoved(listed);
+            }
+        }
     }
 
-    private void handleGetPlayerInfo(Player player) {
-        player.sendMessage("PLAYER_INFO:" + player.getPlayerId() + ":" +
-                player.getPlayerName() + ":" + player.isHost());
+    /**
+     * A waiting session announced by a cluster peer, listed alongside local ones
+     */
+    void addRemoteLobbyEntry(String sessionId, String hostName) {
+        if (lobbyIndex.add(sessionId, hostName)) {
+            scheduleLobbyUpdate();
+        }
     }
 
-    private void broadcastSessionList() {
-        StringBuilder sessionList = new StringBuilder("SESSION_LIST_UPDATE:");
+    void removeRemoteLobbyEntry(String sessionId) {
+        if (lobbyIndex.remove(sessionId)) {
+            scheduleLobbyUpdate();
+        }
+    }
 
-        for (String sessionId : waitingPlayers.keySet()) {
-            Player host = waitingPlayers.get(sessionId);
-            sessionList.append(sessionId).append(",")
-                    .append(host.getPlayerName()).append(";");
+    /**
+     * Publish lobby changes after a short window so bursts go out as one update
+     */
+    private void scheduleLobbyUpdate() {
+        if (lobbyPublishScheduled.compareAndSet(false, true)) {
+            lobbyPublisher.schedule(this::publishLobbyUpdate,
+                    config.getLobbyUpdateWindowMs(), TimeUnit.MILLISECONDS);
         }
+    }
 
-        if (sessionList.length() > "SESSION_LIST_UPDATE:".length()) {
-            sessionList.setLength(sessionList.length() - 1);
+    /**
+     * Fan the pending lobby delta out to idle players. Package-private for benchmarks.
+     */
+    void publishLobbyUpdate() {
+        lobbyPublishScheduled.set(false);
 
-            // Send to all connected players
-            for (Player p : connectedPlayers.values()) {
-                if (p.getCurrentSessionId() == null) { // Only players not in a game
-                    p.sendMessage(sessionList.toString());
-                }
+        LobbyIndex.Update update = lobbyIndex.publish();
+        if (update == null) {
+            return;
+        }
+
+        // Only players neither playing nor spectating follow the lobby
+        for (Player p : connectedPlayers) {
+            if (!p.isInSession() && p.getSpectatingSessionId() == Player.NO_SESSION
+                    && (cluster == null || !cluster.isRouted(p))) {
+                p.sendLobbyUpdate(update);
             }
         }
     }
 
-    private void cleanupPlayer(Player player) {
-        String playerId = player.getPlayerId();
-        String sessionId = player.getCurrentSessionId();
+    void cleanupPlayer(Player player) {
+        leaveQueue(player);
+        if (cluster != null) {
+            cluster.playerLeft(player);
+        }
+        int sessionId = player.getCurrentSessionId();
+
+        // Remove from connected players; proxies and bots share the ID space but are never registered
+        connectedPlayers.remove(player.getId(), player);
+        timingWheel.cancel(player.getIdleTimeout());
 
-        // Remove from connected players
-        connectedPlayers.remove(playerId);
+        stopSpectating(player);
+
+        // A player still waiting for a recovered game gives up their seat
+        if (!suspendedGames.isEmpty()) {
+            SuspendedGame suspended = suspendedGames.get(player.getPlayerName());
+            if (suspended != null) {
+                suspended.detach(player);
+            }
+        }
 
         // Handle session cleanup if player was in a session
-        if (sessionId != null) {
+        if (sessionId != Player.NO_SESSION) {
             GameSession session = activeSessions.get(sessionId);
             if (session != null) {
-                session.removePlayer(playerId);
-
-                // Notify opponent
-                Player opponent = session.getOpponent(playerId);
-                if (opponent != null) {
-                    opponent.sendMessage("OPPONENT_DISCONNECTED");
-                    opponent.setCurrentSessionId(null);
-                }
-
-                // Remove session if both players disconnected or game over
-                if (!session.isActive() || session.isGameOver()) {
-                    activeSessions.remove(sessionId);
-                    waitingPlayers.remove(sessionId);
-                    logger.info("Session {} removed", sessionId);
-                }
+                sessionWorkers.execute(session, () -> leaveSession(player, session));
             }
         }
 
         // Remove from waiting players
-        waitingPlayers.values().removeIf(p -> p.getPlayerId().equals(playerId));
+        waitingPlayers.forEach((waitingId, host) -> {
+            if (host == player) {
+                removeWaitingSession(waitingId);
+            }
+        });
 
         // Disconnect player
         player.disconnect();
 
-        // Broadcast updated session list
-        broadcastSessionList();
+        logger.info("Player cleanup completed for {}", player.getPlayerId());
+    }
+
+    /**
+     * Take a departing player out of their session, from the session's mailbox
+     */
+    private void leaveSession(Player player, GameSession session) {
+        int sessionId = session.getId();
+        // A joiner that lost the seat and left before hearing so was never a
+        // member and ends nothing
+        if (!session.containsPlayer(player)) {
+            return;
+        }
+
+        // Close the seats before reading the opponent, so no joiner is seated
+        // after the opponent was notified
+        session.finish();
+        session.removePlayer(player);
+
+        // Notify opponent
+        Player opponent = session.getOpponent(player);
+        if (opponent != null) {
+            opponent.setCurrentSessionId(Player.NO_SESSION);
+            opponent.sendMessage("OPPONENT_DISCONNECTED");
+        }
+
+        // A session ends as soon as either player leaves
+        if (activeSessions.remove(sessionId, session)) {
+            removeWaitingSession(sessionId);
+            sessionLifetime.recordNanos(session.getAgeNanos());
+            endSpectating(session);
+            if (journal != null) {
+                journal.sessionEnded(sessionId);
+            }
+            logger.info("Session {} removed", session.getSessionId());
+        }
+    }
 
-        logger.info("Player cleanup completed for {}", playerId);
+    /**
+     * A player whose in-game backlog exceeded its budget; its opponent gets OPPONENT_DISCONNECTED
+     */
+    private void disconnectSlowConsumer(Player player) {
+        logger.warn("Disconnecting slow consumer {}", player.getPlayerId());
+        cleanupPlayer(player);
     }
 
-    private void startSessionMonitor() {
-        Thread monitorThread = new Thread(() -> {
-            while (isRunning) {
-                try {
-                    TimeUnit.SECONDS.sleep(30);
-
-                    // Clean up inactive sessions
-                    activeSessions.entrySet().removeIf(entry -> {
-                        GameSession session = entry.getValue();
-                        if (!session.isActive() || session.isGameOver()) {
-                            logger.info("Cleaning up inactive session: {}", entry.getKey());
-                            return true;
-                        }
-                        return false;
-                    });
-
-                    // Clean up waiting sessions without players
-                    waitingPlayers.entrySet().removeIf(entry -> {
-                        Player player = entry.getValue();
-                        if (!player.isActive()) {
-                            logger.info("Cleaning up waiting session: {}", entry.getKey());
-                            return true;
-                        }
-                        return false;
-                    });
-
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
+    /**
+     * Close connections that never complete the PLAYER_INFO handshake
+     */
+    private void scheduleHandshakeTimeout(int playerId, Connection connection) {
+        long timeoutNanos = heartbeatNanos > 0 ? heartbeatNanos : idleTimeoutNanos;
+        if (timeoutNanos <= 0) {
+            return;
+        }
+
+        timingWheel.schedule(() -> {
+            if (!connectedPlayers.containsKey(playerId)) {
+                logger.info("Closing {}: no handshake received", connection.getRemoteAddress());
+                connection.close();
             }
-        });
+        }, timeoutNanos, TimeUnit.NANOSECONDS);
+    }
 
-        monitorThread.setDaemon(true);
-        monitorThread.start();
+    private void scheduleIdleCheck(Player player, long delayNanos) {
+        if (delayNanos > 0) {
+            player.setIdleTimeout(timingWheel.schedule(() -> checkIdle(player),
+                    delayNanos, TimeUnit.NANOSECONDS));
+        }
     }
 
-    private void sendErrorMessage(Socket socket, String message) {
-        try {
-            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-            out.println("ERROR:" + message);
-        } catch (IOException e) {
-            logger.error("Error sending error message: {}", e.getMessage());
+    /**
+     * Delay until the next heartbeat or idle deadline for a player idle for idleNanos
+     */
+    private long nextIdleCheckNanos(long idleNanos) {
+        long next = Long.MAX_VALUE;
+        if (heartbeatNanos > 0) {
+            next = Math.max(1, heartbeatNanos - idleNanos);
+        }
+        if (idleTimeoutNanos > 0) {
+            next = Math.min(next, Math.max(1, idleTimeoutNanos - idleNanos));
+        }
+        return next == Long.MAX_VALUE ? 0 : next;
+    }
+
+    /**
+     * Runs on the timing wheel at a player's next deadline. Any inbound message
+     * (including PONG) counts as activity. Silence for a heartbeat interval
+     * sends PING; a PING still unanswered one interval later, or silence past
+     * server.timeout, reaps the connection, which catches half-open sockets.
+     */
+    private void checkIdle(Player player) {
+        if (!player.isActive()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        long lastActivity = player.getLastActivityNanos();
+        long idle = now - lastActivity;
+        long pingSent = player.getPingSentNanos();
+        boolean pingUnanswered = pingSent != 0 && pingSent - lastActivity >= 0;
+
+        if ((idleTimeoutNanos > 0 && idle >= idleTimeoutNanos)
+                || (pingUnanswered && now - pingSent >= heartbeatNanos)) {
+            logger.info("Reaping idle player {} (no activity for {}s)",
+                    player.getPlayerId(), TimeUnit.NANOSECONDS.toSeconds(idle));
+            cleanupPlayer(player);
+            return;
         }
+
+        if (heartbeatNanos > 0 && idle >= heartbeatNanos && !pingUnanswered) {
+            player.setPingSentNanos(now);
+            player.sendMessage(MessageProtocol.PING);
+            scheduleIdleCheck(player, heartbeatNanos);
+            return;
+        }
+
+        scheduleIdleCheck(player, pingUnanswered ? heartbeatNanos - (now - pingSent) : nextIdleCheckNanos(idle));
     }
 
     public void stop() {
@@ -479,21 +1556,41 @@ public class GameServer {
                 serverSocket.close();
             }
 
+            if (nioServer != null) {
+                nioServer.stop();
+            }
+            metricsServer.stop();
+            matchmaker.stop();
+            if (cluster != null) {
+                cluster.stop();
+            }
+            if (ai != null) {
+                ai.shutdown();
+            }
+
             // Disconnect all players
-            for (Player player : connectedPlayers.values()) {
+            for (Player player : connectedPlayers) {
                 player.disconnect();
             }
 
             // Shutdown executors
             clientExecutor.shutdown();
-            sessionExecutor.shutdown();
+            writerExecutor.shutdown();
+            sessionWorkers.stop();
+            lobbyPublisher.shutdownNow();
+            timingWheel.stop();
+            // Session workers append to the journal, so they must be idle before it closes
+            sessionWorkers.awaitTermination(5, TimeUnit.SECONDS);
+            if (journal != null) {
+                journal.close();
+            }
 
             if (!clientExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
                 clientExecutor.shutdownNow();
             }
 
-            if (!sessionExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                sessionExecutor.shutdownNow();
+            if (!writerExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                writerExecutor.shutdownNow();
             }
 
             logger.info("Server shutdown complete");
@@ -514,4 +1611,46 @@ public class GameServer {
     public int getWaitingSessionCount() {
         return waitingPlayers.size();
     }
+
+    public OutboundPolicy getOutboundPolicy() {
+        return outboundPolicy;
+    }
+
+    /**
+     * Measure buffer and heap bytes retained per connection; walks every player
+     */
+    public ConnectionFootprint getMemoryFootprint() {
+        return ConnectionFootprint.measure(connectedPlayers, admission.getAdmitted());
+    }
+
+    Player getConnectedPlayer(int playerId) {
+        return connectedPlayers.get(playerId);
+    }
+
+    /**
+     * Visit the local sessions waiting for a second player and their hosts
+     */
+    void forEachWaitingSession(ConcurrentIntMap.EntryConsumer<Player> action) {
+        waitingPlayers.forEach(action);
+    }
+
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    public long getAcceptedConnectionCount() {
+        return acceptedConnections.get();
+    }
+
+    public long getCommandCount() {
+        long total = 0;
+        for (MetricsRegistry.Counter counter : commandCounts) {
+            total += counter.get();
+        }
+        return total;
+    }
+
+    public MetricsRegistry.Histogram getMoveLatency() {
+        return moveLatency;
+    }
 }
\ No newline at end of file
@@ -1,39 +1,73 @@
 package com.eric.GobangGameServer;
 
-import java.io.PrintWriter;
-import java.net.Socket;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Represents a single game session between two players
+ * Represents a single game session between two players. Sessions are
+ * identified by an int ID; the "S"-prefixed string form only appears in
+ * protocol messages.
+ *
+ * A session keeps the same object from creation until it is removed; the
+ * second seat is filled in place. Its lifecycle is a small state machine
+ * advanced by compare-and-set, so concurrent joiners race on one CAS and
+ * exactly one of them is seated.
  */
 public class GameSession {
     private static final Logger logger = LoggerFactory.getLogger(GameSession.class);
 
+    /**
+     * Lifecycle of a session
+     */
+    public enum State {
+        /** Host seated, second seat open */
+        WAITING,
+        /** A joiner won the second seat and is being seated */
+        STARTING,
+        /** Both seats filled; games are played and restarted in this state */
+        IN_PROGRESS,
+        /** Removed from the server; no one can join */
+        FINISHED
+    }
+
+    private final int id;
     private final String sessionId;
     private Player player1;
-    private Player player2;
+    private volatile Player player2;
     private Player currentTurn;
-    private boolean gameStarted = false;
+    private final AtomicReference<State> state;
     private boolean gameOver = false;
     private final ConcurrentHashMap<String, String> gameState;
+    private final GameBoard board;
+    private Player restartRequestedBy;
+    private final List<Player> spectators = new CopyOnWriteArrayList<>();
+    private final long createdAtNanos = System.nanoTime();
+    private final SessionMailbox mailbox = new SessionMailbox();
+
+    public GameSession(int id, Player player1, Player player2) {
+        this(id, player1, player2, RuleVariant.FREESTYLE);
+    }
 
-    public GameSession(String sessionId, Player player1, Player player2) {
-        this.sessionId = sessionId;
+    public GameSession(int id, Player player1, Player player2, RuleVariant rules) {
+        this.id = id;
+        this.sessionId = formatId(id);
+        this.board = new GameBoard(rules);
         this.player1 = player1;
         this.player2 = player2;
         this.currentTurn = player1; // Player1 (host) goes first
+        this.state = new AtomicReference<>(player2 != null ? State.IN_PROGRESS : State.WAITING);
         this.gameState = new ConcurrentHashMap<>();
         initializeGameState();
 
         if (player1 != null) {
-            player1.setCurrentSessionId(sessionId);
+            player1.setCurrentSessionId(id);
         }
         if (player2 != null) {
-            player2.setCurrentSessionId(sessionId);
-            this.gameStarted = true;
+            player2.setCurrentSessionId(id);
         }
     }
 
@@ -44,10 +78,46 @@ public class GameSession {
         gameState.put("player2_color", "white");
     }
 
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Protocol form of the ID, e.g. "S7"
+     */
     public String getSessionId() {
         return sessionId;
     }
 
+    public static String formatId(int id) {
+        return "S" + id;
+    }
+
+    /**
+     * ID from its protocol form, or -1 if the text is not a valid session ID
+     */
+    public static int parseId(String sessionId) {
+        if (sessionId.length() < 2 || sessionId.charAt(0) != 'S') {
+            return -1;
+        }
+        return CommandDecoder.parseInt(sessionId, 1, sessionId.length());
+    }
+
+    public RuleVariant getRules() {
+        return board.getRules();
+    }
+
+    public long getAgeNanos() {
+        return System.nanoTime() - createdAtNanos;
+    }
+
+    /**
+     * Events for this session waiting for a worker
+     */
+    SessionMailbox getMailbox() {
+        return mailbox;
+    }
+
     public Player getPlayer1() {
         return player1;
     }
@@ -56,14 +126,49 @@ public class GameSession {
         return player2;
     }
 
+    /**
+     * Fill the second seat; only the joiner that moved the session to STARTING calls this
+     */
     public void setPlayer2(Player player2) {
         this.player2 = player2;
         if (player2 != null) {
-            player2.setCurrentSessionId(sessionId);
-            this.gameStarted = true;
+            player2.setCurrentSessionId(id);
+        }
+    }
+
+    /**
+     * Take the second seat: WAITING to STARTING by CAS, seat the player,
+     * then IN_PROGRESS. False if another joiner got there first or the
+     * session is over.
+     */
+    public boolean join(Player player) {
+        if (!state.compareAndSet(State.WAITING, State.STARTING)) {
+            return false;
+        }
+        setPlayer2(player);
+        state.set(State.IN_PROGRESS);
+        return true;
+    }
+
+    /**
+     * Close the session to joiners, returning the state it was in. Waits out
+     * a joiner that is mid-seat, so afterwards both seats are final.
+     */
+    public State finish() {
+        while (true) {
+            State current = state.get();
+            if (current == State.STARTING) {
+                Thread.onSpinWait();
+            } else if (current == State.FINISHED || state.compareAndSet(current, State.FINISHED)) {
+                return current;
+            }
         }
     }
 
+    public State getState() {
+        return state.get();
+    }
+
     public Player getCurrentTurn() {
         return currentTurn;
     }
@@ -84,12 +189,42 @@ public class GameSession {
         return "black"; // default
     }
 
+    /**
+     * True once both seats are filled
+     */
     public boolean isGameStarted() {
-        return gameStarted;
+        State current = state.get();
+        return current == State.IN_PROGRESS || (current == State.FINISHED && player2 != null);
+    }
+
+    public GameBoard getBoard() {
+        return board;
+    }
+
+    /**
+     * Colour of the player to move
+     */
+    public boolean isBlackTurn() {
+        return currentTurn == player1;
+    }
+
+    public Player getRestartRequestedBy() {
+        return restartRequestedBy;
+    }
+
+    public void setRestartRequestedBy(Player player) {
+        this.restartRequestedBy = player;
     }
 
-    public void setGameStarted(boolean gameStarted) {
-        this.gameStarted = gameStarted;
+    /**
+     * Clear the board and hand the first move back to player1 (black)
+     */
+    public void resetGame() {
+        board.reset();
+        currentTurn = player1;
+        gameOver = false;
+        restartRequestedBy = null;
+        gameState.put("turn", "black");
     }
 
     public boolean isGameOver() {
@@ -113,10 +248,8 @@ public class GameSession {
      */
     public void sendToPlayer(Player player, String message) {
         try {
-            if (player != null && player.getOutputStream() != null) {
-                PrintWriter out = player.getOutputStream();
-                out.println(message);
-                logger.debug("Sent to player {}: {}", player.getPlayerId(), message);
+            if (player != null) {
+                player.sendMessage(message);
             }
         } catch (Exception e) {
             logger.error("Error sending message to player {}: {}",
@@ -128,25 +261,90 @@ public class GameSession {
      * Send a message to the opponent of a player
      */
     public void sendToOpponent(Player player, String message) {
-        Player opponent = getOpponent(player.getPlayerId());
+        Player opponent = getOpponent(player);
         sendToPlayer(opponent, message);
     }
 
+    /**
+     * Attach a read-only observer and send it the current board. Moves carry
+     * their move number, so the spectator can skip any already in the snapshot.
+     */
+    public void addSpectator(Player spectator) {
+        spectators.add(spectator);
+        spectator.sendFrame(Frame.of(getSpectatorSnapshot()));
+    }
+
+    public boolean removeSpectator(Player spectator) {
+        return spectators.remove(spectator);
+    }
+
+    public List<Player> getSpectators() {
+        return spectators;
+    }
+
+    public int getSpectatorCount() {
+        return spectators.size();
+    }
+
+    /**
+     * Encode an event once and queue the same frame for every spectator
+     */
+    public void broadcastToSpectators(String message) {
+        if (spectators.isEmpty()) {
+            return;
+        }
+
+        Frame frame = Frame.of(message);
+        for (Player spectator : spectators) {
+            spectator.sendFrame(frame);
+        }
+    }
+
+    /**
+     * SPECTATE_STATE:sessionId:black:white:moveCount:status:cells, where status
+     * is waiting, black, white (to move) or over and cells holds 225 digits,
+     * row by row: 0 empty, 1 black, 2 white
+     */
+    public String getSpectatorSnapshot() {
+        StringBuilder snapshot = new StringBuilder(64 + GameBoard.CELLS);
+        snapshot.append(MessageProtocol.SPECTATE_STATE).append(':').append(sessionId).append(':')
+                .append(player1 != null ? player1.getPlayerName() : "").append(':')
+                .append(player2 != null ? player2.getPlayerName() : "").append(':')
+                .append(board.getMoveCount()).append(':');
+
+        if (!isGameStarted()) {
+            snapshot.append("waiting");
+        } else if (gameOver) {
+            snapshot.append("over");
+        } else {
+            snapshot.append(isBlackTurn() ? "black" : "white");
+        }
+        snapshot.append(':');
+
+        for (int row = 0; row < GameBoard.SIZE; row++) {
+            for (int col = 0; col < GameBoard.SIZE; col++) {
+                snapshot.append((char) ('0' + board.getStone(row, col)));
+            }
+        }
+        return snapshot.toString();
+    }
+
     /**
      * Check if a player is in this session
      */
-    public boolean containsPlayer(String playerId) {
-        return (player1 != null && player1.getPlayerId().equals(playerId)) ||
-                (player2 != null && player2.getPlayerId().equals(playerId));
+    public boolean containsPlayer(Player player) {
+        return player != null && (player1 == player || player2 == player);
     }
 
     /**
      * Get the opponent of a player
      */
-    public Player getOpponent(String playerId) {
-        if (player1 != null && player1.getPlayerId().equals(playerId)) {
+    public Player getOpponent(Player player) {
+        if (player == null) {
+            return null;
+        } else if (player1 == player) {
             return player2;
-        } else if (player2 != null && player2.getPlayerId().equals(playerId)) {
+        } else if (player2 == player) {
             return player1;
         }
         return null;
@@ -155,24 +353,21 @@ public class GameSession {
     /**
      * Remove a player from the session (disconnect)
      */
-    public void removePlayer(String playerId) {
-        if (player1 != null && player1.getPlayerId().equals(playerId)) {
-            player1.setActive(false);
-            player1.setCurrentSessionId(null);
-        } else if (player2 != null && player2.getPlayerId().equals(playerId)) {
-            player2.setActive(false);
-            player2.setCurrentSessionId(null);
+    public void removePlayer(Player player) {
+        if (player != null && (player1 == player || player2 == player)) {
+            player.setActive(false);
+            player.setCurrentSessionId(Player.NO_SESSION);
         }
         gameOver = true;
     }
 
     /**
-     * Get the player object by ID
+     * Get the seated player with the given ID
      */
-    public Player getPlayerById(String playerId) {
-        if (player1 != null && player1.getPlayerId().equals(playerId)) {
+    public Player getPlayerById(int playerId) {
+        if (player1 != null && player1.getId() == playerId) {
             return player1;
-        } else if (player2 != null && player2.getPlayerId().equals(playerId)) {
+        } else if (player2 != null && player2.getId() == playerId) {
             return player2;
         }
         return null;
@@ -198,6 +393,6 @@ public class GameSession {
      * Check if session has room for another player
      */
     public boolean hasRoom() {
-        return player2 == null;
+        return state.get() == State.WAITING;
     }
 }
\ No newline at end of file
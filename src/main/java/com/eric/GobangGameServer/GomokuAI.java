@@ -0,0 +1,600 @@
+package com.eric.GobangGameServer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Move search for the computer opponent: iterative-deepening negamax with
+ * alpha-beta under a per-move time budget. Candidate moves are limited to
+ * cells near existing stones and pruned by threats: a win is taken at once,
+ * a five must be blocked, and an open four must be blocked or answered
+ * with a four. Positions are Zobrist-hashed into one lock-free
+ * transposition table shared by every search.
+ *
+ * Searches run on a dedicated fork-join pool, never on I/O or session
+ * threads. While the pool is idle, each search forks lazy-SMP helpers.
+ * The helpers search the same position with staggered depths and fill
+ * the shared table for the main thread. Under load the helpers are
+ * skipped, and the budget counts from submission, so a busy pool plays
+ * shallower instead of slower.
+ */
+public class GomokuAI {
+    private static final Logger logger = LoggerFactory.getLogger(GomokuAI.class);
+
+    public static final int EMPTY = 0;
+    public static final int BLACK = 1;
+    public static final int WHITE = 2;
+
+    private static final int SIZE = GameBoard.SIZE;
+    private static final int CELLS = GameBoard.CELLS;
+    private static final int MAX_PLY = 20;
+    private static final int MAX_CANDIDATES = 12;
+    private static final int INFINITY = Integer.MAX_VALUE - 1;
+    static final int WIN = 100_000_000;
+    private static final int WIN_THRESHOLD = WIN - 1000;
+
+    // Shape scores for a run of stones, by length and number of open ends
+    private static final int FIVE = 10_000_000;
+    private static final int OPEN_FOUR = 1_000_000;
+    private static final int FOUR = 100_000;
+    private static final int OPEN_THREE = 10_000;
+    private static final int THREE = 1_000;
+    private static final int OPEN_TWO = 100;
+    private static final int TWO = 10;
+    private static final int DOUBLE_THREAT = OPEN_FOUR / 2;
+
+    private static final int[] DR = {0, 1, 1, 1};
+    private static final int[] DC = {1, 0, 1, -1};
+
+    private static final long[][] ZOBRIST = new long[3][CELLS];
+    private static final int[][] NEIGHBOURS = new int[CELLS][];
+    private static final int[][] LINES;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_60BAL);
+        for (int colour = BLACK; colour <= WHITE; colour++) {
+            for (int cell = 0; cell < CELLS; cell++) {
+                ZOBRIST[colour][cell] = random.nextLong();
+            }
+        }
+
+        for (int cell = 0; cell < CELLS; cell++) {
+            List<Integer> near = new ArrayList<>();
+            int row = cell / SIZE;
+            int col = cell % SIZE;
+            for (int r = row - 2; r <= row + 2; r++) {
+                for (int c = col - 2; c <= col + 2; c++) {
+                    if ((r != row || c != col) && GameBoard.isOnBoard(r, c)) {
+                        near.add(r * SIZE + c);
+                    }
+                }
+            }
+            NEIGHBOURS[cell] = near.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // Every line of five or more cells in the four directions, for evaluation
+        List<int[]> lines = new ArrayList<>();
+        for (int d = 0; d < 4; d++) {
+            for (int row = 0; row < SIZE; row++) {
+                for (int col = 0; col < SIZE; col++) {
+                    if (GameBoard.isOnBoard(row - DR[d], col - DC[d])) {
+                        continue;
+                    }
+                    List<Integer> line = new ArrayList<>();
+                    for (int r = row, c = col; GameBoard.isOnBoard(r, c); r += DR[d], c += DC[d]) {
+                        line.add(r * SIZE + c);
+                    }
+                    if (line.size() >= 5) {
+                        lines.add(line.stream().mapToInt(Integer::intValue).toArray());
+                    }
+                }
+            }
+        }
+        LINES = lines.toArray(new int[0][]);
+    }
+
+    private final ForkJoinPool pool;
+    private final TranspositionTable table;
+    private final int searchThreads;
+    private final long moveTimeNanos;
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+
+    /**
+     * @param poolThreads   threads shared by all bot games
+     * @param searchThreads threads one search may use when the pool is idle
+     * @param tableBits     log2 of the transposition table size
+     */
+    public GomokuAI(int poolThreads, int searchThreads, long moveTime, TimeUnit unit, int tableBits) {
+        this.pool = new ForkJoinPool(Math.max(1, poolThreads), pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("ai-search-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            // Search is throughput work; I/O and session threads come first
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }, null, false);
+        this.table = new TranspositionTable(tableBits);
+        this.searchThreads = Math.max(1, searchThreads);
+        this.moveTimeNanos = unit.toNanos(moveTime);
+    }
+
+    public static GomokuAI fromConfig(ServerConfig config) {
+        return new GomokuAI(config.getAiThreads(), config.getAiSearchThreads(), config.getAiMoveTimeMs(),
+                TimeUnit.MILLISECONDS, config.getAiTableBits());
+    }
+
+    /**
+     * Search the position on the AI pool and hand the chosen cell (row * 15 + col) to the callback
+     *
+     * @param cells board as EMPTY/BLACK/WHITE per cell; not modified
+     */
+    public void chooseMove(byte[] cells, int side, IntConsumer onMove) {
+        long deadline = System.nanoTime() + moveTimeNanos;
+        pool.execute(new SearchTask(cells.clone(), side, deadline, onMove));
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public long getSearches() {
+        return searches.sum();
+    }
+
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    /**
+     * Single-threaded search to a fixed depth, ignoring time. Package-private for benchmarks.
+     */
+    int searchToDepth(byte[] cells, int side, int depth) {
+        Worker worker = new Worker(cells.clone(), Long.MAX_VALUE, new AtomicBoolean(), false);
+        return worker.iterate(side, 1, depth);
+    }
+
+    private final class SearchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] cells;
+        private final int side;
+        private final long deadline;
+        private final IntConsumer onMove;
+
+        SearchTask(byte[] cells, int side, long deadline, IntConsumer onMove) {
+            this.cells = cells;
+            this.side = side;
+            this.deadline = deadline;
+            this.onMove = onMove;
+        }
+
+        @Override
+        protected void compute() {
+            int move;
+            try {
+                AtomicBoolean stop = new AtomicBoolean();
+                List<RecursiveAction> helpers = new ArrayList<>();
+                if (pool.getQueuedSubmissionCount() == 0) {
+                    for (int i = 1; i < searchThreads; i++) {
+                        Worker helper = new Worker(cells.clone(), deadline, stop, true);
+                        int startDepth = 1 + (i & 1);
+                        RecursiveAction task = new RecursiveAction() {
+                            @Override
+                            protected void compute() {
+                                helper.iterate(side, startDepth, MAX_PLY);
+                            }
+                        };
+                        task.fork();
+                        helpers.add(task);
+                    }
+                }
+
+                Worker main = new Worker(cells, deadline, stop, false);
+                move = main.iterate(side, 1, MAX_PLY);
+                stop.set(true);
+                for (RecursiveAction helper : helpers) {
+                    helper.join();
+                }
+                searches.increment();
+            } catch (RuntimeException e) {
+                logger.error("AI search failed: {}", e.getMessage(), e);
+                move = fallbackMove(cells);
+            }
+            onMove.accept(move);
+        }
+    }
+
+    /**
+     * One thread's search state: its own board copy and per-ply move lists
+     */
+    private final class Worker {
+        private final byte[] cells;
+        private final long deadline;
+        private final AtomicBoolean stop;
+        private final boolean helper;
+        private final int[][] moves = new int[MAX_PLY + 1][CELLS];
+        private final int[][] scores = new int[MAX_PLY + 1][CELLS];
+        private long nodeCount;
+        private boolean mayAbort;
+        private boolean aborted;
+
+        Worker(byte[] cells, long deadline, AtomicBoolean stop, boolean helper) {
+            this.cells = cells;
+            this.deadline = deadline;
+            this.stop = stop;
+            this.helper = helper;
+            // Helpers give up as soon as the main search is done
+            this.mayAbort = helper;
+        }
+
+        /**
+         * Iterative deepening; returns the best move of the deepest completed iteration
+         */
+        int iterate(int side, int startDepth, int maxDepth) {
+            try {
+                int count = generate(side, 0);
+                if (count == 0) {
+                    return fallbackMove(cells);
+                }
+                if (count < 0 || count == 1) {
+                    return moves[0][0];
+                }
+
+                long hash = hash(cells);
+                int bestMove = moves[0][0];
+                for (int depth = startDepth; depth <= maxDepth; depth++) {
+                    int[] result = searchRoot(side, depth, hash);
+                    if (aborted) {
+                        break;
+                    }
+                    bestMove = result[0];
+                    mayAbort = true;
+                    if (Math.abs(result[1]) >= WIN_THRESHOLD) {
+                        break;
+                    }
+                }
+                return bestMove;
+            } finally {
+                nodes.add(nodeCount);
+            }
+        }
+
+        private int[] searchRoot(int side, int depth, long hash) {
+            int count = generate(side, 0);
+            int[] rootMoves = moves[0];
+            promote(rootMoves, count, TranspositionTable.move(table.probe(hash)));
+
+            int alpha = -INFINITY;
+            int bestMove = rootMoves[0];
+            for (int i = 0; i < count; i++) {
+                int cell = rootMoves[i];
+                cells[cell] = (byte) side;
+                int score = -negamax(depth - 1, 1, -INFINITY, -alpha, 3 - side, hash ^ ZOBRIST[side][cell]);
+                cells[cell] = EMPTY;
+                if (aborted) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = cell;
+                }
+            }
+            if (!aborted) {
+                table.store(hash, alpha, depth, TranspositionTable.EXACT, bestMove);
+            }
+            return new int[]{bestMove, alpha};
+        }
+
+        private int negamax(int depth, int ply, int alpha, int beta, int side, long hash) {
+            if ((++nodeCount & 1023) == 0 && mayAbort && (stop.get() || System.nanoTime() > deadline)) {
+                aborted = true;
+            }
+            if (aborted) {
+                return 0;
+            }
+
+            long entry = table.probe(hash);
+            int ttMove = -1;
+            if (entry != 0) {
+                ttMove = TranspositionTable.move(entry);
+                if (TranspositionTable.depth(entry) >= depth) {
+                    int score = fromTable(TranspositionTable.score(entry), ply);
+                    int flag = TranspositionTable.flag(entry);
+                    if (flag == TranspositionTable.EXACT
+                            || (flag == TranspositionTable.LOWER && score >= beta)
+                            || (flag == TranspositionTable.UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+
+            if (depth == 0) {
+                return evaluate(cells, side);
+            }
+
+            int count = generate(side, ply);
+            if (count < 0) {
+                return WIN - ply;
+            }
+            if (count == 0) {
+                return 0;
+            }
+
+            int[] plyMoves = moves[ply];
+            promote(plyMoves, count, ttMove);
+
+            int originalAlpha = alpha;
+            int best = -INFINITY;
+            int bestMove = plyMoves[0];
+            for (int i = 0; i < count; i++) {
+                int cell = plyMoves[i];
+                cells[cell] = (byte) side;
+                int score = -negamax(depth - 1, ply + 1, -beta, -alpha, 3 - side, hash ^ ZOBRIST[side][cell]);
+                cells[cell] = EMPTY;
+                if (aborted) {
+                    return 0;
+                }
+                if (score > best) {
+                    best = score;
+                    bestMove = cell;
+                    if (score > alpha) {
+                        alpha = score;
+                        if (alpha >= beta) {
+                            break;
+                        }
+                    }
+                }
+            }
+
+            int flag = best <= originalAlpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(hash, toTable(best, ply), depth, flag, bestMove);
+            return best;
+        }
+
+        /**
+         * Fill moves[ply] with candidates, best first, after threat pruning.
+         * Returns -1 with the winning cell first if the side to move can make five.
+         */
+        private int generate(int side, int ply) {
+            int[] plyMoves = moves[ply];
+            int[] plyScores = scores[ply];
+            int opponent = 3 - side;
+            int count = 0;
+            int maxDefend = 0;
+            int maxAttack = 0;
+            int stones = 0;
+
+            for (int cell = 0; cell < CELLS; cell++) {
+                if (cells[cell] != EMPTY) {
+                    stones++;
+                    continue;
+                }
+                if (!hasNeighbour(cell)) {
+                    continue;
+                }
+
+                int attack = pointScore(cells, cell, side);
+                if (attack >= FIVE) {
+                    plyMoves[0] = cell;
+                    return -1;
+                }
+                int defend = pointScore(cells, cell, opponent);
+                maxAttack = Math.max(maxAttack, attack);
+                maxDefend = Math.max(maxDefend, defend);
+                plyMoves[count] = cell;
+                plyScores[count] = attack + defend;
+                count++;
+            }
+
+            if (stones == 0) {
+                plyMoves[0] = (SIZE / 2) * SIZE + SIZE / 2;
+                return 1;
+            }
+
+            // Threat pruning: only moves that answer the most urgent threat survive
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                int cell = plyMoves[i];
+                boolean keep;
+                if (maxDefend >= FIVE) {
+                    keep = pointScore(cells, cell, opponent) >= FIVE;
+                } else if (maxAttack >= OPEN_FOUR) {
+                    keep = pointScore(cells, cell, side) >= OPEN_FOUR;
+                } else if (maxDefend >= OPEN_FOUR) {
+                    keep = pointScore(cells, cell, opponent) >= FOUR || pointScore(cells, cell, side) >= FOUR;
+                } else {
+                    keep = true;
+                }
+                if (keep) {
+                    plyMoves[kept] = cell;
+                    plyScores[kept] = plyScores[i];
+                    kept++;
+                }
+            }
+
+            // Partial selection sort: only the best few are ever searched
+            int limit = Math.min(kept, MAX_CANDIDATES);
+            for (int i = 0; i < limit; i++) {
+                int best = i;
+                for (int j = i + 1; j < kept; j++) {
+                    if (plyScores[j] > plyScores[best]) {
+                        best = j;
+                    }
+                }
+                swap(plyMoves, plyScores, i, best);
+            }
+            // Helpers vary their move order so they explore different lines first
+            if (helper && limit > 2) {
+                swap(plyMoves, plyScores, 1, 2);
+            }
+            return limit;
+        }
+
+        private boolean hasNeighbour(int cell) {
+            for (int near : NEIGHBOURS[cell]) {
+                if (cells[near] != EMPTY) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Score of the shapes a stone of this colour would make at the cell
+     */
+    static int pointScore(byte[] cells, int cell, int colour) {
+        int row = cell / SIZE;
+        int col = cell % SIZE;
+        int total = 0;
+        int threats = 0;
+
+        for (int d = 0; d < 4; d++) {
+            int count = 1;
+            int open = 0;
+            for (int sign = -1; sign <= 1; sign += 2) {
+                int r = row + sign * DR[d];
+                int c = col + sign * DC[d];
+                while (GameBoard.isOnBoard(r, c) && cells[r * SIZE + c] == colour) {
+                    count++;
+                    r += sign * DR[d];
+                    c += sign * DC[d];
+                }
+                if (GameBoard.isOnBoard(r, c) && cells[r * SIZE + c] == EMPTY) {
+                    open++;
+                }
+            }
+            int shape = shape(count, open);
+            total += shape;
+            if (shape >= OPEN_THREE && shape < FIVE) {
+                threats++;
+            }
+        }
+        return threats >= 2 ? total + DOUBLE_THREAT : total;
+    }
+
+    /**
+     * Static evaluation from the side to move's point of view
+     */
+    static int evaluate(byte[] cells, int side) {
+        int black = 0;
+        int white = 0;
+        for (int[] line : LINES) {
+            int i = 0;
+            while (i < line.length) {
+                int colour = cells[line[i]];
+                if (colour == EMPTY) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < line.length && cells[line[i]] == colour) {
+                    i++;
+                }
+                int open = (start > 0 && cells[line[start - 1]] == EMPTY ? 1 : 0)
+                        + (i < line.length && cells[line[i]] == EMPTY ? 1 : 0);
+                int shape = shape(i - start, open);
+                if (colour == BLACK) {
+                    black += shape;
+                } else {
+                    white += shape;
+                }
+            }
+        }
+        return side == BLACK ? black - white : white - black;
+    }
+
+    private static int shape(int count, int open) {
+        if (count >= 5) {
+            return FIVE;
+        }
+        if (open == 0) {
+            return 0;
+        }
+        switch (count) {
+            case 4:
+                return open == 2 ? OPEN_FOUR : FOUR;
+            case 3:
+                return open == 2 ? OPEN_THREE : THREE;
+            case 2:
+                return open == 2 ? OPEN_TWO : TWO;
+            default:
+                return open;
+        }
+    }
+
+    static long hash(byte[] cells) {
+        long hash = 0;
+        for (int cell = 0; cell < CELLS; cell++) {
+            if (cells[cell] != EMPTY) {
+                hash ^= ZOBRIST[cells[cell]][cell];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Win scores are stored relative to the node so they stay correct at any ply
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score <= -WIN_THRESHOLD ? score - ply : score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score >= WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score <= -WIN_THRESHOLD ? score + ply : score;
+    }
+
+    private static void promote(int[] moves, int count, int move) {
+        for (int i = 1; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    private static void swap(int[] moves, int[] scores, int i, int j) {
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+        int score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+
+    /**
+     * Centre-most empty cell, for an empty candidate list or a failed search
+     */
+    private static int fallbackMove(byte[] cells) {
+        int centre = SIZE / 2;
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int cell = 0; cell < CELLS; cell++) {
+            int distance = Math.abs(cell / SIZE - centre) + Math.abs(cell % SIZE - centre);
+            if (cells[cell] == EMPTY && distance < bestDistance) {
+                best = cell;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,117 @@
+package com.eric.GobangGameServer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Log-linear latency histogram in microseconds: exact below 128us, then 64
+ * sub-buckets per power of two (about 1.5% error). Not thread-safe; record
+ * per thread and merge.
+ */
+public class LatencyHistogram {
+    private static final int LINEAR_LIMIT = 128;
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_BITS = 7;
+    private static final int BUCKETS = LINEAR_LIMIT + (64 - LINEAR_BITS) * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long maxMicros;
+    private long sumMicros;
+
+    public void recordNanos(long nanos) {
+        recordMicros(TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos)));
+    }
+
+    public void recordMicros(long micros) {
+        counts[indexOf(micros)]++;
+        totalCount++;
+        sumMicros += micros;
+        if (micros > maxMicros) {
+            maxMicros = micros;
+        }
+    }
+
+    public void merge(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sumMicros += other.sumMicros;
+        maxMicros = Math.max(maxMicros, other.maxMicros);
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    public double getMeanMicros() {
+        return totalCount == 0 ? 0 : (double) sumMicros / totalCount;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile (0-100)
+     */
+    public long getPercentileMicros(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile / 100.0 * totalCount);
+        rank = Math.max(1, Math.min(rank, totalCount));
+
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    /**
+     * One-line summary, e.g. "p50=120us p90=210us p99=480us p99.9=1.2ms max=3.4ms"
+     */
+    public String summary() {
+        return "n=" + totalCount +
+                " mean=" + format(Math.round(getMeanMicros())) +
+                " p50=" + format(getPercentileMicros(50)) +
+                " p90=" + format(getPercentileMicros(90)) +
+                " p99=" + format(getPercentileMicros(99)) +
+                " p99.9=" + format(getPercentileMicros(99.9)) +
+                " max=" + format(maxMicros);
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < LINEAR_LIMIT) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - LINEAR_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + LINEAR_BITS;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+    private static String format(long micros) {
+        if (micros < 1000) {
+            return micros + "us";
+        }
+        if (micros < 1_000_000) {
+            return String.format("%.1fms", micros / 1000.0);
+        }
+        return String.format("%.2fs", micros / 1_000_000.0);
+    }
+}
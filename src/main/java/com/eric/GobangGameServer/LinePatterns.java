@@ -0,0 +1,166 @@
+package com.eric.GobangGameServer;
+
+/**
+ * Precomputed classification of every line pattern through a stone, used
+ * by the rule variants that need more than "five or more in a row".
+ *
+ * A line is the 11 cells centred on the stone along one direction, each
+ * encoded in base 3 (EMPTY, OWN, or BLOCKED for an opponent stone or off
+ * the board), with the cell at offset -5 as the least significant digit.
+ * The table entry for a line says whether the stone makes exactly five or
+ * an overline there, how many distinct fours it is part of, and, if it is
+ * part of a three, which empty cells turn that three into a straight four.
+ * Classifying a move is four table lookups instead of a pattern scan.
+ */
+final class LinePatterns {
+    static final int RADIUS = 5;
+    static final int WIDTH = 2 * RADIUS + 1;
+
+    static final int EMPTY = 0;
+    static final int OWN = 1;
+    static final int BLOCKED = 2;
+
+    // Entry layout: bit 0 exact five, bit 1 overline, bits 2-3 fours, bits 4-14 straight-four cells
+    private static final int FIVE_BIT = 1;
+    private static final int OVERLINE_BIT = 2;
+    private static final int FOURS_SHIFT = 2;
+    private static final int THREE_SHIFT = 4;
+
+    private static final int[] TABLE = build();
+
+    private LinePatterns() {
+    }
+
+    /**
+     * Entry for an encoded line
+     */
+    static int entry(int line) {
+        return TABLE[line];
+    }
+
+    static boolean isFive(int entry) {
+        return (entry & FIVE_BIT) != 0;
+    }
+
+    static boolean isOverline(int entry) {
+        return (entry & OVERLINE_BIT) != 0;
+    }
+
+    /**
+     * Fours through the stone on this line: 0, 1 or 2 (as in X.XXX.X)
+     */
+    static int fours(int entry) {
+        return (entry >>> FOURS_SHIFT) & 0x3;
+    }
+
+    /**
+     * Bit p is set if playing line position p (offset p - RADIUS from the
+     * stone) turns a three through the stone into a straight four; 0 if the
+     * stone makes no three on this line
+     */
+    static int threeCompletions(int entry) {
+        return entry >>> THREE_SHIFT;
+    }
+
+    private static int[] build() {
+        int size = 1;
+        for (int i = 0; i < WIDTH; i++) {
+            size *= 3;
+        }
+
+        int[] table = new int[size];
+        int[] cells = new int[WIDTH];
+        for (int line = 0; line < size; line++) {
+            int rest = line;
+            for (int p = 0; p < WIDTH; p++) {
+                cells[p] = rest % 3;
+                rest /= 3;
+            }
+            if (cells[RADIUS] == OWN) {
+                table[line] = classify(cells);
+            }
+        }
+        return table;
+    }
+
+    private static int classify(int[] cells) {
+        int length = runEnd(cells, RADIUS) - runStart(cells, RADIUS) + 1;
+        if (length == 5) {
+            return FIVE_BIT;
+        }
+        if (length > 5) {
+            return OVERLINE_BIT;
+        }
+
+        // A four is a set of four stones that one more stone makes exactly five;
+        // a straight four's two completions share the same stones and count once
+        int fours = 0;
+        int firstFour = 0;
+        for (int p = 0; p < WIDTH && fours < 2; p++) {
+            if (cells[p] != EMPTY) {
+                continue;
+            }
+            cells[p] = OWN;
+            int start = runStart(cells, RADIUS);
+            int end = runEnd(cells, RADIUS);
+            if (p >= start && p <= end && end - start + 1 == 5) {
+                int stones = span(start, end) & ~(1 << p);
+                if (stones != firstFour) {
+                    fours++;
+                    firstFour = fours == 1 ? stones : firstFour;
+                }
+            }
+            cells[p] = EMPTY;
+        }
+        if (fours > 0) {
+            return fours << FOURS_SHIFT;
+        }
+
+        // A three is one stone short of a straight four: four in a row, both
+        // ends open, and each end making exactly five
+        int completions = 0;
+        for (int p = 0; p < WIDTH; p++) {
+            if (cells[p] != EMPTY) {
+                continue;
+            }
+            cells[p] = OWN;
+            int start = runStart(cells, RADIUS);
+            int end = runEnd(cells, RADIUS);
+            if (p >= start && p <= end && end - start + 1 == 4 && isOpenEnd(cells, start - 1, -1)
+                    && isOpenEnd(cells, end + 1, 1)) {
+                completions |= 1 << p;
+            }
+            cells[p] = EMPTY;
+        }
+        return completions << THREE_SHIFT;
+    }
+
+    /**
+     * The cell is empty and filling it would not join a stone beyond it
+     */
+    private static boolean isOpenEnd(int[] cells, int p, int step) {
+        if (p < 0 || p >= WIDTH || cells[p] != EMPTY) {
+            return false;
+        }
+        int beyond = p + step;
+        return beyond < 0 || beyond >= WIDTH || cells[beyond] != OWN;
+    }
+
+    private static int runStart(int[] cells, int p) {
+        while (p > 0 && cells[p - 1] == OWN) {
+            p--;
+        }
+        return p;
+    }
+
+    private static int runEnd(int[] cells, int p) {
+        while (p < WIDTH - 1 && cells[p + 1] == OWN) {
+            p++;
+        }
+        return p;
+    }
+
+    private static int span(int start, int end) {
+        return ((1 << (end + 1)) - 1) & ~((1 << start) - 1);
+    }
+}
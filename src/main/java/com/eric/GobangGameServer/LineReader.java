@@ -0,0 +1,105 @@
+package com.eric.GobangGameServer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+/**
+ * Reads newline-terminated lines into one reusable char buffer. The returned
+ * line is a view that is only valid until the next call to {@link #readLine()}.
+ * The buffer can start small and grow for long lines; a grown buffer is
+ * swapped back for a small one once it is empty again.
+ */
+public class LineReader {
+    private static final int MAX_LINE_LENGTH = 8192;
+
+    private final Reader reader;
+    private final int initialCapacity;
+    private char[] buffer;
+    private CharBuffer line;
+    private int start = 0;
+    private int end = 0;
+
+    public LineReader(Reader reader) {
+        this(reader, MAX_LINE_LENGTH);
+    }
+
+    /**
+     * @param initialCapacity chars held while idle; grows up to the line length limit
+     */
+    public LineReader(Reader reader, int initialCapacity) {
+        this.reader = reader;
+        this.initialCapacity = Math.max(16, Math.min(initialCapacity, MAX_LINE_LENGTH));
+        allocate(this.initialCapacity);
+    }
+
+    /**
+     * Next line without its terminator, or null at end of stream
+     */
+    public CharSequence readLine() throws IOException {
+        if (start == end && buffer.length > initialCapacity) {
+            // The previous line has been consumed, so nothing refers to the large buffer
+            allocate(initialCapacity);
+            start = end = 0;
+        }
+        int scan = start;
+
+        while (true) {
+            for (; scan < end; scan++) {
+                if (buffer[scan] == '\n') {
+                    int lineEnd = scan > start && buffer[scan - 1] == '\r' ? scan - 1 : scan;
+                    CharSequence result = view(start, lineEnd);
+                    start = scan + 1;
+                    return result;
+                }
+            }
+
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                scan -= start;
+                start = 0;
+            }
+
+            if (end == buffer.length) {
+                if (buffer.length == MAX_LINE_LENGTH) {
+                    throw new IOException("Line exceeds " + MAX_LINE_LENGTH + " characters");
+                }
+                char[] previous = buffer;
+                allocate(Math.min(buffer.length * 2, MAX_LINE_LENGTH));
+                System.arraycopy(previous, 0, buffer, 0, end);
+            }
+
+            int read = reader.read(buffer, end, buffer.length - end);
+            if (read < 0) {
+                if (end > start) {
+                    // Final line without terminator
+                    CharSequence result = view(start, end);
+                    start = end;
+                    return result;
+                }
+                return null;
+            }
+            end += read;
+        }
+    }
+
+    /**
+     * Bytes held by the line buffer
+     */
+    public int getRetainedBytes() {
+        return buffer.length * Character.BYTES;
+    }
+
+    private void allocate(int capacity) {
+        buffer = new char[capacity];
+        line = CharBuffer.wrap(buffer);
+    }
+
+    private CharSequence view(int from, int to) {
+        line.clear();
+        line.position(from);
+        line.limit(to);
+        return line;
+    }
+}
@@ -0,0 +1,550 @@
+package com.eric.GobangGameServer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Headless load generator: opens pairs of bot clients against a server, runs
+ * the real handshake, creates and joins a session per pair and plays moves
+ * (with optional chat) at a fixed rate, then reports move round-trip latency
+ * and connection setup throughput. With --in-process it starts its own
+ * GameServer on a free loopback port, which is what CI runs use. With
+ * --binary the bots negotiate the binary protocol at handshake.
+ */
+public class LoadGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+    private static final int READ_TIMEOUT_MS = 10000;
+
+    private final String host;
+    private final int port;
+    private final int clients;
+    private final double movesPerSecond;
+    private final int chatEvery;
+    private final long durationNanos;
+    private boolean binary;
+
+    private final String[] moves = drawlessGame();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong chats = new AtomicLong();
+    private final AtomicLong games = new AtomicLong();
+
+    /**
+     * @param movesPerSecond moves per game per second, 0 for as fast as the server answers
+     * @param chatEvery send a chat line every N moves, 0 to disable
+     */
+    public LoadGenerator(String host, int port, int clients, double movesPerSecond,
+                         int chatEvery, long duration, TimeUnit unit) {
+        if (clients < 2 || clients % 2 != 0) {
+            throw new IllegalArgumentException("Client count must be an even number >= 2");
+        }
+        this.host = host;
+        this.port = port;
+        this.clients = clients;
+        this.movesPerSecond = movesPerSecond;
+        this.chatEvery = chatEvery;
+        this.durationNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * Results of one run
+     */
+    public static class Report {
+        private final int clients;
+        private final long setupNanos;
+        private final long runNanos;
+        private final LatencyHistogram setupLatency;
+        private final LatencyHistogram moveLatency;
+        private final long games;
+        private final long chats;
+        private final long errors;
+
+        Report(int clients, long setupNanos, long runNanos, LatencyHistogram setupLatency,
+               LatencyHistogram moveLatency, long games, long chats, long errors) {
+            this.clients = clients;
+            this.setupNanos = setupNanos;
+            this.runNanos = runNanos;
+            this.setupLatency = setupLatency;
+            this.moveLatency = moveLatency;
+            this.games = games;
+            this.chats = chats;
+            this.errors = errors;
+        }
+
+        public LatencyHistogram getMoveLatency() {
+            return moveLatency;
+        }
+
+        public LatencyHistogram getSetupLatency() {
+            return setupLatency;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public double getConnectionsPerSecond() {
+            return setupNanos == 0 ? 0 : setupLatency.getCount() * 1e9 / setupNanos;
+        }
+
+        public double getMovesPerSecond() {
+            return runNanos == 0 ? 0 : moveLatency.getCount() * 1e9 / runNanos;
+        }
+
+        public void print() {
+            System.out.println("\n=== Load Test Results ===");
+            System.out.println("Clients: " + clients + " (" + clients / 2 + " games)");
+            System.out.printf("Connection setup: %d in %.2fs (%.0f conn/s)%n",
+                    setupLatency.getCount(), setupNanos / 1e9, getConnectionsPerSecond());
+            System.out.println("Handshake latency: " + setupLatency.summary());
+            System.out.printf("Moves: %d in %.2fs (%.0f moves/s)%n",
+                    moveLatency.getCount(), runNanos / 1e9, getMovesPerSecond());
+            System.out.println("Move round-trip: " + moveLatency.summary());
+            System.out.println("Games restarted: " + games);
+            System.out.println("Chat messages: " + chats);
+            System.out.println("Errors: " + errors);
+            System.out.println("=========================\n");
+        }
+    }
+
+    /**
+     * Have bots opt into the binary protocol at handshake
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+
+    /**
+     * Run the workload and block until every bot has finished
+     */
+    public Report run() throws InterruptedException {
+        int pairs = clients / 2;
+        ExecutorService bots = Executors.newFixedThreadPool(pairs, runnable -> {
+            Thread thread = new Thread(runnable, "load-bot");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        CountDownLatch connected = new CountDownLatch(pairs);
+        List<Future<BotPair>> results = new ArrayList<>(pairs);
+        long setupStart = System.nanoTime();
+        for (int i = 0; i < pairs; i++) {
+            BotPair pair = new BotPair(i);
+            results.add(bots.submit(() -> {
+                pair.play(connected);
+                return pair;
+            }));
+        }
+
+        connected.await();
+        long runStart = System.nanoTime();
+        long setupNanos = runStart - setupStart;
+
+        LatencyHistogram setupLatency = new LatencyHistogram();
+        LatencyHistogram moveLatency = new LatencyHistogram();
+        for (Future<BotPair> result : results) {
+            try {
+                BotPair pair = result.get();
+                setupLatency.merge(pair.setupLatency);
+                moveLatency.merge(pair.moveLatency);
+            } catch (Exception e) {
+                errors.incrementAndGet();
+                logger.warn("Bot pair failed: {}", e.getMessage());
+            }
+        }
+        long runNanos = System.nanoTime() - runStart;
+        bots.shutdownNow();
+
+        return new Report(clients, setupNanos, runNanos, setupLatency, moveLatency,
+                games.get(), chats.get(), errors.get());
+    }
+
+    /**
+     * A host and a guest bot sharing one game. One thread drives both sockets:
+     * turns alternate, so after each move it reads the mover's TURN_CHANGE (the
+     * round trip) and then drains the opponent's MOVE and TURN_CHANGE.
+     */
+    private class BotPair {
+        private final int index;
+        private final LatencyHistogram setupLatency = new LatencyHistogram();
+        private final LatencyHistogram moveLatency = new LatencyHistogram();
+
+        BotPair(int index) {
+            this.index = index;
+        }
+
+        void play(CountDownLatch connected) throws IOException {
+            Bot hostBot;
+            Bot guestBot;
+            try {
+                hostBot = connect("loadhost" + index, true);
+                guestBot = connect("loadguest" + index, false);
+            } finally {
+                connected.countDown();
+            }
+
+            try {
+                hostBot.send("CREATE_SESSION:load" + index);
+                String created = hostBot.await("SESSION_CREATED:");
+                String sessionId = created.split(":")[1];
+
+                guestBot.send("JOIN_SESSION:" + sessionId);
+                hostBot.await("GAME_START:");
+                guestBot.await("GAME_START:");
+
+                playMoves(hostBot, guestBot);
+
+                hostBot.send("DISCONNECT");
+                guestBot.send("DISCONNECT");
+            } finally {
+                hostBot.close();
+                guestBot.close();
+            }
+        }
+
+        private Bot connect(String name, boolean isHost) throws IOException {
+            long start = System.nanoTime();
+            Bot bot = new Bot();
+            bot.sendHandshake(MessageProtocol.formatConnectMessage(name, isHost, binary));
+            bot.await("CONNECTED:");
+            setupLatency.recordNanos(System.nanoTime() - start);
+            return bot;
+        }
+
+        private void playMoves(Bot black, Bot white) throws IOException {
+            long interval = movesPerSecond > 0 ? (long) (1e9 / movesPerSecond) : 0;
+            long deadline = System.nanoTime() + durationNanos;
+            long scheduled = System.nanoTime();
+            int next = 0;
+
+            while (System.nanoTime() < deadline) {
+                Bot mover = (next & 1) == 0 ? black : white;
+                Bot opponent = mover == black ? white : black;
+
+                if (interval > 0) {
+                    scheduled += interval;
+                    long delay = scheduled - System.nanoTime();
+                    if (delay > 0) {
+                        LockSupport.parkNanos(delay);
+                    }
+                } else {
+                    scheduled = System.nanoTime();
+                }
+
+                // Latency counts from the scheduled send time, so a stalled
+                // server shows up in the percentiles instead of slowing the bots
+                mover.send(moves[next]);
+                mover.await("TURN_CHANGE:");
+                moveLatency.recordNanos(System.nanoTime() - scheduled);
+                opponent.await("MOVE:");
+                opponent.await("TURN_CHANGE:");
+
+                if (chatEvery > 0 && (next + 1) % chatEvery == 0) {
+                    mover.send("CHAT:load test " + next);
+                    opponent.await("CHAT:");
+                    chats.incrementAndGet();
+                }
+
+                if (++next == moves.length) {
+                    black.send("RESTART");
+                    white.await("RESTART_REQUEST");
+                    white.send("RESTART");
+                    black.await("RESTART_ACCEPTED");
+                    black.await("TURN_CHANGE:black");
+                    white.await("RESTART_ACCEPTED");
+                    white.await("TURN_CHANGE:black");
+                    games.incrementAndGet();
+                    next = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * One blocking client socket, speaking text or binary frames. Binary
+     * frames are turned back into protocol lines, so the workload is the same.
+     */
+    private class Bot {
+        private final Socket socket;
+        private final BufferedReader reader;
+        private final PrintWriter writer;
+        private final InputStream input;
+        private final OutputStream output;
+        private final Command command = new Command();
+        private final byte[] frame = binary ? new byte[BinaryProtocol.MAX_FRAME_LENGTH] : null;
+
+        Bot() throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            socket.setSoTimeout(READ_TIMEOUT_MS);
+            output = socket.getOutputStream();
+            if (binary) {
+                // No char reader, which would read ahead past the frames
+                input = new BufferedInputStream(socket.getInputStream());
+                reader = null;
+                writer = null;
+            } else {
+                input = null;
+                reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer out = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+                writer = new PrintWriter(out, false);
+            }
+        }
+
+        /**
+         * The handshake is a text line in either protocol
+         */
+        void sendHandshake(String message) throws IOException {
+            if (!binary) {
+                send(message);
+                return;
+            }
+            output.write((message + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        void send(String message) throws IOException {
+            if (binary) {
+                output.write(BinaryProtocol.encodeCommand(CommandDecoder.decode(message, command)));
+                return;
+            }
+            writer.print(message);
+            writer.print('\n');
+            writer.flush();
+        }
+
+        private String readLine() throws IOException {
+            if (!binary) {
+                return reader.readLine();
+            }
+            int length = BinaryProtocol.readVarint(input);
+            if (length < 0) {
+                return null;
+            }
+            if (length > frame.length || input.readNBytes(frame, 0, length) < length) {
+                throw new EOFException("Bad frame of " + length + " bytes");
+            }
+            return BinaryProtocol.toLine(frame, length);
+        }
+
+        /**
+         * Read until a line starting with prefix, answering heartbeats and
+         * skipping lobby traffic on the way
+         */
+        String await(String prefix) throws IOException {
+            while (true) {
+                String line = readLine();
+                if (line == null) {
+                    throw new IOException("Server closed the connection while waiting for " + prefix);
+                }
+                if (line.startsWith(prefix)) {
+                    return line;
+                }
+                if (line.equals(MessageProtocol.PING)) {
+                    send(MessageProtocol.PONG);
+                } else if (line.startsWith("ERROR") || line.equals("OPPONENT_DISCONNECTED")) {
+                    throw new IOException("Unexpected " + line + " while waiting for " + prefix);
+                }
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    /**
+     * Alternating black/white moves that fill most of the board without five in
+     * a row: colouring cells by (row + 2 * col) mod 4 limits every line to runs of two
+     */
+    static String[] drawlessGame() {
+        List<String> black = new ArrayList<>();
+        List<String> white = new ArrayList<>();
+
+        for (int row = 0; row < GameBoard.SIZE; row++) {
+            for (int col = 0; col < GameBoard.SIZE; col++) {
+                String move = MessageProtocol.formatMoveMessage(row, col);
+                if ((row + 2 * col) % 4 < 2) {
+                    black.add(move);
+                } else {
+                    white.add(move);
+                }
+            }
+        }
+
+        int pairs = Math.min(black.size(), white.size());
+        String[] moves = new String[pairs * 2];
+        for (int i = 0; i < pairs; i++) {
+            moves[2 * i] = black.get(i);
+            moves[2 * i + 1] = white.get(i);
+        }
+        return moves;
+    }
+
+    private static int findFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static void awaitListening(int port, long timeoutMs) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (true) {
+            try {
+                new Socket("127.0.0.1", port).close();
+                return;
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        String host = "127.0.0.1";
+        int port = 12345;
+        int clients = 100;
+        double rate = 0;
+        int chatEvery = 0;
+        int duration = 30;
+        boolean inProcess = false;
+        boolean binary = false;
+        String transport = "blocking";
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-H":
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "-p":
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "-c":
+                case "--clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "-r":
+                case "--rate":
+                    rate = Double.parseDouble(args[++i]);
+                    break;
+                case "--chat-every":
+                    chatEvery = Integer.parseInt(args[++i]);
+                    break;
+                case "-d":
+                case "--duration":
+                    duration = Integer.parseInt(args[++i]);
+                    break;
+                case "--in-process":
+                    inProcess = true;
+                    break;
+                case "-t":
+                case "--transport":
+                    transport = args[++i];
+                    break;
+                case "--binary":
+                    binary = true;
+                    break;
+                case "-h":
+                case "--help":
+                    printUsage();
+                    return;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    printUsage();
+                    System.exit(2);
+            }
+        }
+
+        GameServer server = null;
+        try {
+            if (inProcess) {
+                ServerConfig config = new ServerConfig(false);
+                host = "127.0.0.1";
+                port = findFreePort();
+                config.setPort(port);
+                // One extra slot for the readiness probe
+                config.setMaxPlayers(clients + 1);
+                config.setTransport(transport);
+                // Chat is part of the generated load, not abuse
+                config.setChatRateLimit(0);
+                server = new GameServer(config);
+
+                GameServer started = server;
+                Thread serverThread = new Thread(started::start, "load-server");
+                serverThread.setDaemon(true);
+                serverThread.start();
+                awaitListening(port, 5000);
+                logger.info("In-process {} server listening on port {}", transport, port);
+            }
+
+            LoadGenerator generator = new LoadGenerator(host, port, clients, rate, chatEvery,
+                    duration, TimeUnit.SECONDS);
+            generator.setBinary(binary);
+            Report report = generator.run();
+            report.print();
+
+            if (server != null) {
+                server.stop();
+            }
+            System.exit(report.getErrors() == 0 ? 0 : 1);
+        } catch (Exception e) {
+            logger.error("Load test failed: {}", e.getMessage());
+            if (server != null) {
+                server.stop();
+            }
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: java -cp GobangGameServer.jar com.eric.GobangGameServer.LoadGenerator [options]");
+        System.out.println();
+        System.out.println("Options:");
+        System.out.println("  -H, --host HOST        Server host (default: 127.0.0.1)");
+        System.out.println("  -p, --port PORT        Server port (default: 12345)");
+        System.out.println("  -c, --clients NUM      Bot clients, two per game (default: 100)");
+        System.out.println("  -r, --rate MOVES       Moves per second per game, 0 = unthrottled (default: 0)");
+        System.out.println("      --chat-every N     Send a chat line every N moves (default: off)");
+        System.out.println("  -d, --duration SECS    Length of the move phase (default: 30)");
+        System.out.println("      --in-process       Start a server in this JVM on a free port");
+        System.out.println("  -t, --transport TYPE   Transport for --in-process: blocking or nio");
+        System.out.println("      --binary           Use the binary protocol instead of text lines");
+        System.out.println("  -h, --help             Show this help message");
+        System.out.println();
+        System.out.println("Examples:");
+        System.out.println("  java -cp GobangGameServer.jar com.eric.GobangGameServer.LoadGenerator -c 200 -r 5");
+        System.out.println("  java -cp GobangGameServer.jar com.eric.GobangGameServer.LoadGenerator --in-process -t nio -d 10");
+        System.out.println();
+    }
+}
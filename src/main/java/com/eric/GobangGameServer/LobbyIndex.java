@@ -0,0 +1,185 @@
+package com.eric.GobangGameServer;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Versioned index of joinable sessions. Changes are collected until the next
+ * {@link #publish()}, which turns them into one net delta (an add followed by a
+ * remove in the same window cancels out) and rebuilds the cached snapshot once.
+ */
+public class LobbyIndex {
+
+    /**
+     * Pre-encoded full session list at a given version
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final String listMessage;
+        private final String updateMessage;
+
+        Snapshot(long version, String entries) {
+            this.version = version;
+            this.listMessage = MessageProtocol.SESSION_LIST + ":" + entries;
+            this.updateMessage = MessageProtocol.SESSION_LIST_UPDATE + ":" + entries;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Reply to LIST_SESSIONS
+         */
+        public String getListMessage() {
+            return listMessage;
+        }
+
+        /**
+         * Pushed to clients that missed a delta
+         */
+        public String getUpdateMessage() {
+            return updateMessage;
+        }
+    }
+
+    /**
+     * Net change between two published versions
+     */
+    public static final class Update {
+        private final long previousVersion;
+        private final String delta;
+        private final Snapshot snapshot;
+
+        Update(long previousVersion, String delta, Snapshot snapshot) {
+            this.previousVersion = previousVersion;
+            this.delta = delta;
+            this.snapshot = snapshot;
+        }
+
+        public long getPreviousVersion() {
+            return previousVersion;
+        }
+
+        public long getVersion() {
+            return snapshot.getVersion();
+        }
+
+        /**
+         * SESSION_ADDED / SESSION_REMOVED lines, one per changed session
+         */
+        public String getDelta() {
+            return delta;
+        }
+
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, String> current = new LinkedHashMap<>();
+    private final Set<String> published = new LinkedHashSet<>();
+    private final Set<String> dirty = new LinkedHashSet<>();
+    private volatile Snapshot snapshot = new Snapshot(0, "");
+
+    /**
+     * Record a new joinable session; returns true if a publish should be scheduled
+     */
+    public boolean add(String sessionId, String hostName) {
+        lock.lock();
+        try {
+            current.put(sessionId, hostName);
+            return markDirty(sessionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record that a session is no longer joinable; returns true if a publish should be scheduled
+     */
+    public boolean remove(String sessionId) {
+        lock.lock();
+        try {
+            if (current.remove(sessionId) == null) {
+                return false;
+            }
+            return markDirty(sessionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean markDirty(String sessionId) {
+        boolean first = dirty.isEmpty();
+        dirty.add(sessionId);
+        return first;
+    }
+
+    /**
+     * Fold pending changes into a new version, or return null if they cancelled out
+     */
+    public Update publish() {
+        lock.lock();
+        try {
+            if (dirty.isEmpty()) {
+                return null;
+            }
+
+            long previousVersion = snapshot.getVersion();
+            long version = previousVersion + 1;
+            StringBuilder delta = new StringBuilder();
+
+            for (String sessionId : dirty) {
+                String hostName = current.get(sessionId);
+                boolean wasListed = published.contains(sessionId);
+
+                if (hostName != null && !wasListed) {
+                    appendLine(delta).append(MessageProtocol.SESSION_ADDED).append(':').append(version)
+                            .append(':').append(sessionId).append(',').append(hostName);
+                    published.add(sessionId);
+                } else if (hostName == null && wasListed) {
+                    appendLine(delta).append(MessageProtocol.SESSION_REMOVED).append(':').append(version)
+                            .append(':').append(sessionId);
+                    published.remove(sessionId);
+                }
+            }
+            dirty.clear();
+
+            if (delta.length() == 0) {
+                return null;
+            }
+
+            snapshot = new Snapshot(version, encodeEntries());
+            return new Update(previousVersion, delta.toString(), snapshot);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    private String encodeEntries() {
+        StringBuilder entries = new StringBuilder();
+        for (Map.Entry<String, String> entry : current.entrySet()) {
+            if (entries.length() > 0) {
+                entries.append(';');
+            }
+            entries.append(entry.getKey()).append(',').append(entry.getValue());
+        }
+        return entries.toString();
+    }
+
+    private static StringBuilder appendLine(StringBuilder builder) {
+        if (builder.length() > 0) {
+            builder.append('\n');
+        }
+        return builder;
+    }
+}
@@ -10,15 +10,13 @@ import java.util.Scanner;
  */
 public class Main {
     private static final Logger logger = LoggerFactory.getLogger(Main.class);
-    private static final int DEFAULT_PORT = 12345;
-    private static final int DEFAULT_MAX_PLAYERS = 100;
-
     private static GameServer server;
 
     public static void main(String[] args) {
         try {
-            int port = DEFAULT_PORT;
-            int maxPlayers = DEFAULT_MAX_PLAYERS;
+            ServerConfig config = new ServerConfig();
+            int port = config.getPort();
+            int maxPlayers = config.getMaxPlayers();
 
             // Parse command line arguments
             for (int i = 0; i < args.length; i++) {
@@ -35,6 +33,35 @@ public class Main {
                             maxPlayers = Integer.parseInt(args[++i]);
                         }
                         break;
+                    case "-t":
+                    case "--transport":
+                        if (i + 1 < args.length) {
+                            config.setTransport(args[++i]);
+                        }
+                        break;
+                    case "--lean":
+                        config.setLeanConnections(true);
+                        break;
+                    case "--metrics-port":
+                        if (i + 1 < args.length) {
+                            config.setMetricsPort(Integer.parseInt(args[++i]));
+                        }
+                        break;
+                    case "--node-id":
+                        if (i + 1 < args.length) {
+                            config.setClusterNodeId(args[++i]);
+                        }
+                        break;
+                    case "--cluster-port":
+                        if (i + 1 < args.length) {
+                            config.setClusterPort(Integer.parseInt(args[++i]));
+                        }
+                        break;
+                    case "--peers":
+                        if (i + 1 < args.length) {
+                            config.setClusterPeers(args[++i]);
+                        }
+                        break;
                     case "-h":
                     case "--help":
                         printUsage();
@@ -49,13 +76,15 @@ public class Main {
             }
 
             // Validate max players
-            if (maxPlayers < 2 || maxPlayers > 1000) {
-                logger.error("Max players must be between 2 and 1000");
+            if (maxPlayers < 2 || maxPlayers > 100000) {
+                logger.error("Max players must be between 2 and 100000");
                 System.exit(1);
             }
 
             // Start server
-            server = new GameServer(port, maxPlayers);
+            config.setPort(port);
+            config.setMaxPlayers(maxPlayers);
+            server = new GameServer(config);
 
             // Add shutdown hook
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -89,6 +118,8 @@ public class Main {
         System.out.println("  status    - Show server status");
         System.out.println("  players   - List connected players");
         System.out.println("  sessions  - List active sessions");
+        System.out.println("  metrics   - Dump all metrics");
+        System.out.println("  memory    - Show memory retained per connection");
         System.out.println("  stop      - Stop the server");
         System.out.println("  help      - Show this help");
         System.out.println("  exit      - Exit console (server continues)");
@@ -111,6 +142,16 @@ public class Main {
                     printActiveSessions();
                     break;
 
+                case "metrics":
+                    if (server != null) {
+                        System.out.println(server.getMetrics().scrape());
+                    }
+                    break;
+
+                case "memory":
+                    printMemoryFootprint();
+                    break;
+
                 case "stop":
                     System.out.println("Stopping server...");
                     if (server != null) {
@@ -145,12 +186,55 @@ public class Main {
             System.out.println("Connected Players: " + server.getConnectedPlayerCount());
             System.out.println("Active Sessions: " + server.getActiveSessionCount());
             System.out.println("Waiting Sessions: " + server.getWaitingSessionCount());
+
+            OutboundPolicy outbound = server.getOutboundPolicy();
+            System.out.println("Lobby Updates Coalesced: " + outbound.getLobbyCoalesced());
+            System.out.println("Lobby Updates Dropped: " + outbound.getLobbyDropped());
+            System.out.println("Game Messages Dropped: " + outbound.getGameDropped());
+            System.out.println("Slow Consumers Disconnected: " + outbound.getSlowDisconnects());
+
+            MetricsRegistry.Histogram moves = server.getMoveLatency();
+            System.out.println("Connections Accepted: " + server.getAcceptedConnectionCount());
+            System.out.println("Commands Received: " + server.getCommandCount());
+            System.out.println("Moves Processed: " + moves.getCount());
+            if (moves.getCount() > 0) {
+                System.out.println("Move Latency p50/p99: " + formatBound(moves.getPercentileNanos(50)) +
+                        " / " + formatBound(moves.getPercentileNanos(99)));
+            }
             System.out.println("===================\n");
         } else {
             System.out.println("Server not initialized");
         }
     }
 
+    private static void printMemoryFootprint() {
+        if (server == null) {
+            System.out.println("Server not initialized");
+            return;
+        }
+
+        ConnectionFootprint footprint = server.getMemoryFootprint();
+        System.out.println("\n=== Memory per Connection ===");
+        System.out.println("Open Connections: " + footprint.getConnections());
+        System.out.println("Buffer Bytes Held: " + footprint.getBufferBytes() +
+                " (" + footprint.getBufferBytesPerConnection() + " per connection, max " +
+                footprint.getMaxBufferBytes() + ")");
+        System.out.println("Live Heap: " + footprint.getLiveHeapBytes() / (1024 * 1024) + " MB of " +
+                footprint.getMaxHeapBytes() / (1024 * 1024) + " MB");
+        System.out.println("Heap Bytes per Connection: " + footprint.getHeapBytesPerConnection());
+        if (footprint.getProjectedConnections() >= 0) {
+            System.out.println("Projected Connections at Max Heap: " + footprint.getProjectedConnections());
+        }
+        System.out.println("=============================\n");
+    }
+
+    private static String formatBound(long nanos) {
+        if (nanos < 0) {
+            return "above top bucket";
+        }
+        return nanos < 1_000_000 ? "<= " + nanos / 1000 + "us" : "<= " + nanos / 1_000_000 + "ms";
+    }
+
     private static void printConnectedPlayers() {
         System.out.println("\n=== Connected Players ===");
         // Note: In a real implementation, you would access the server's player list
@@ -170,6 +254,8 @@ public class Main {
         System.out.println("  status    - Display server status information");
         System.out.println("  players   - List all connected players");
         System.out.println("  sessions  - List all active game sessions");
+        System.out.println("  metrics   - Print all metrics in Prometheus format");
+        System.out.println("  memory    - Display buffer and heap bytes retained per connection");
         System.out.println("  stop      - Gracefully shutdown the server");
         System.out.println("  help      - Display this help message");
         System.out.println("  exit      - Exit the console interface");
@@ -182,11 +268,18 @@ public class Main {
         System.out.println("Options:");
         System.out.println("  -p, --port PORT        Server port (default: 12345)");
         System.out.println("  -m, --max-players NUM  Maximum players (default: 100)");
+        System.out.println("  -t, --transport TYPE   blocking or nio (default: blocking)");
+        System.out.println("      --lean             Keep no write buffers on idle connections");
+        System.out.println("      --metrics-port PORT Serve Prometheus metrics on localhost (default: off)");
+        System.out.println("      --node-id ID       Join a cluster under this node ID (default: standalone)");
+        System.out.println("      --cluster-port PORT Port for links from other nodes (default: 12445)");
+        System.out.println("      --peers LIST       Other nodes as id=host:port,...");
         System.out.println("  -h, --help             Show this help message");
         System.out.println();
         System.out.println("Examples:");
         System.out.println("  java -jar GobangGameServer.jar");
         System.out.println("  java -jar GobangGameServer.jar -p 8080 -m 50");
+        System.out.println("  java -jar GobangGameServer.jar -p 12345 --node-id a --cluster-port 12445 --peers b=127.0.0.1:12446");
         System.out.println();
     }
 }
\ No newline at end of file
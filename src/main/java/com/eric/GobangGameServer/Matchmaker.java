@@ -0,0 +1,302 @@
+package com.eric.GobangGameServer;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Rating-based matchmaking queue. Queued players sit in fixed-width rating
+ * buckets kept in a TreeMap; on every tick each ticket, oldest first, looks
+ * for the nearest-rated opponent by walking outward from its own bucket
+ * (O(log n) per step) within a search window that widens the longer it waits.
+ * Enqueue and cancel only touch atomics and a concurrent queue; the buckets
+ * are owned by the single matchmaker thread.
+ */
+public class Matchmaker {
+    private static final Logger logger = LoggerFactory.getLogger(Matchmaker.class);
+
+    public static final int INITIAL_RATING = 1500;
+    private static final int ELO_K = 32;
+
+    private static final int WAITING = 0;
+    private static final int CLAIMING = 1;
+    private static final int MATCHED = 2;
+    private static final int CANCELLED = 3;
+
+    /**
+     * A player's place in the queue
+     */
+    public static final class Ticket {
+        private final Player player;
+        private final int rating;
+        private final int bucket;
+        private final long enqueuedNanos;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        private Ticket(Player player, int rating, int bucket) {
+            this.player = player;
+            this.rating = rating;
+            this.bucket = bucket;
+            this.enqueuedNanos = System.nanoTime();
+        }
+
+        public Player getPlayer() {
+            return player;
+        }
+
+        public int getRating() {
+            return rating;
+        }
+
+        public long getWaitNanos() {
+            return System.nanoTime() - enqueuedNanos;
+        }
+
+        boolean isWaiting() {
+            return state.get() == WAITING;
+        }
+    }
+
+    private final int bucketWidth;
+    private final int initialWindow;
+    private final int windowGrowthPerSecond;
+    private final int maxWindow;
+    private final BiConsumer<Ticket, Ticket> onMatch;
+
+    private final Map<String, Integer> ratings = new ConcurrentHashMap<>();
+    private final Queue<Ticket> arrivals = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder matches = new LongAdder();
+    private ScheduledExecutorService ticker;
+
+    // Matchmaker thread only
+    private final TreeMap<Integer, ArrayDeque<Ticket>> buckets = new TreeMap<>();
+    private final ArrayDeque<Ticket> waiting = new ArrayDeque<>();
+
+    /**
+     * @param onMatch called on the matchmaker thread with the longer-waiting ticket first
+     */
+    public Matchmaker(int bucketWidth, int initialWindow, int windowGrowthPerSecond, int maxWindow,
+                      BiConsumer<Ticket, Ticket> onMatch) {
+        this.bucketWidth = Math.max(1, bucketWidth);
+        this.initialWindow = initialWindow;
+        this.windowGrowthPerSecond = windowGrowthPerSecond;
+        this.maxWindow = maxWindow;
+        this.onMatch = onMatch;
+    }
+
+    public static Matchmaker fromConfig(ServerConfig config, BiConsumer<Ticket, Ticket> onMatch) {
+        return new Matchmaker(config.getMatchmakingBucketWidth(), config.getMatchmakingInitialWindow(),
+                config.getMatchmakingWindowGrowth(), config.getMatchmakingMaxWindow(), onMatch);
+    }
+
+    public void start(long tickInterval, TimeUnit unit) {
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "matchmaker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(() -> {
+            try {
+                tick();
+            } catch (Exception e) {
+                logger.error("Matchmaking tick failed: {}", e.getMessage(), e);
+            }
+        }, tickInterval, tickInterval, unit);
+    }
+
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    public int getRating(Player player) {
+        return ratings.getOrDefault(player.getPlayerName(), INITIAL_RATING);
+    }
+
+    /**
+     * Seed a rating directly. Package-private for benchmarks.
+     */
+    void setRating(String playerName, int rating) {
+        ratings.put(playerName, rating);
+    }
+
+    /**
+     * Elo update after a finished game
+     */
+    public void recordResult(Player winner, Player loser, boolean draw) {
+        int winnerRating = getRating(winner);
+        int loserRating = getRating(loser);
+        double expected = 1.0 / (1.0 + Math.pow(10, (loserRating - winnerRating) / 400.0));
+        int delta = (int) Math.round(ELO_K * ((draw ? 0.5 : 1.0) - expected));
+
+        ratings.put(winner.getPlayerName(), winnerRating + delta);
+        ratings.put(loser.getPlayerName(), loserRating - delta);
+    }
+
+    public Ticket enqueue(Player player) {
+        int rating = getRating(player);
+        Ticket ticket = new Ticket(player, rating, Math.floorDiv(rating, bucketWidth));
+        queued.incrementAndGet();
+        arrivals.add(ticket);
+        return ticket;
+    }
+
+    /**
+     * Leave the queue; false if the ticket was already matched
+     */
+    public boolean cancel(Ticket ticket) {
+        while (true) {
+            if (ticket.state.compareAndSet(WAITING, CANCELLED)) {
+                queued.decrementAndGet();
+                return true;
+            }
+            int state = ticket.state.get();
+            if (state != CLAIMING) {
+                return state == CANCELLED;
+            }
+            // The matchmaker is pairing this ticket; it settles within a few instructions
+            Thread.onSpinWait();
+        }
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    public long getMatchCount() {
+        return matches.sum();
+    }
+
+    /**
+     * Admit new tickets, then give every waiting ticket one search, oldest first.
+     * Package-private so benchmarks can drive it.
+     */
+    void tick() {
+        Ticket arrival;
+        while ((arrival = arrivals.poll()) != null) {
+            if (arrival.isWaiting()) {
+                buckets.computeIfAbsent(arrival.bucket, key -> new ArrayDeque<>()).add(arrival);
+                waiting.add(arrival);
+            }
+        }
+
+        long now = System.nanoTime();
+        for (int i = waiting.size(); i > 0; i--) {
+            Ticket ticket = waiting.poll();
+            if (!ticket.isWaiting()) {
+                continue;
+            }
+
+            Ticket opponent = findNearest(ticket, window(ticket, now));
+            if (opponent != null && claim(ticket, opponent)) {
+                matches.increment();
+                onMatch.accept(ticket, opponent);
+            } else if (ticket.isWaiting()) {
+                waiting.add(ticket);
+            }
+        }
+    }
+
+    private int window(Ticket ticket, long now) {
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(now - ticket.enqueuedNanos);
+        long window = initialWindow + waitedMs * windowGrowthPerSecond / 1000;
+        return (int) Math.min(window, maxWindow);
+    }
+
+    /**
+     * Closest-rated waiting ticket within the window, searching the ticket's
+     * own bucket and then neighbouring buckets in order of distance
+     */
+    private Ticket findNearest(Ticket ticket, int window) {
+        Ticket best = oldestWaiting(ticket.bucket, ticket);
+        int bestDistance = best == null ? Integer.MAX_VALUE : Math.abs(best.rating - ticket.rating);
+
+        Integer below = buckets.lowerKey(ticket.bucket);
+        Integer above = buckets.higherKey(ticket.bucket);
+
+        while (below != null || above != null) {
+            // Smallest possible distance to any rating in the next bucket each way
+            int belowGap = below == null ? Integer.MAX_VALUE : ticket.rating - (below * bucketWidth + bucketWidth - 1);
+            int aboveGap = above == null ? Integer.MAX_VALUE : above * bucketWidth - ticket.rating;
+            int gap = Math.min(belowGap, aboveGap);
+            if (gap > window || gap >= bestDistance) {
+                break;
+            }
+
+            int key = belowGap <= aboveGap ? below : above;
+            Ticket candidate = oldestWaiting(key, ticket);
+            if (candidate != null) {
+                int distance = Math.abs(candidate.rating - ticket.rating);
+                if (distance < bestDistance) {
+                    best = candidate;
+                    bestDistance = distance;
+                }
+            }
+
+            if (belowGap <= aboveGap) {
+                below = buckets.lowerKey(below);
+            } else {
+                above = buckets.higherKey(above);
+            }
+        }
+
+        return bestDistance <= window ? best : null;
+    }
+
+    /**
+     * First waiting ticket in a bucket other than self, dropping finished tickets from its head
+     */
+    private Ticket oldestWaiting(int key, Ticket self) {
+        ArrayDeque<Ticket> bucket = buckets.get(key);
+        if (bucket == null) {
+            return null;
+        }
+
+        while (!bucket.isEmpty() && !bucket.peekFirst().isWaiting()) {
+            bucket.pollFirst();
+        }
+        if (bucket.isEmpty()) {
+            buckets.remove(key);
+            return null;
+        }
+
+        Iterator<Ticket> tickets = bucket.iterator();
+        while (tickets.hasNext()) {
+            Ticket candidate = tickets.next();
+            if (candidate != self && candidate.isWaiting()) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Mark both tickets matched, or neither if one was cancelled meanwhile
+     */
+    private boolean claim(Ticket first, Ticket second) {
+        if (!first.state.compareAndSet(WAITING, CLAIMING)) {
+            return false;
+        }
+        if (!second.state.compareAndSet(WAITING, MATCHED)) {
+            first.state.set(WAITING);
+            return false;
+        }
+        first.state.set(MATCHED);
+        queued.addAndGet(-2);
+        return true;
+    }
+}
@@ -16,6 +16,12 @@ public class MessageProtocol {
     public static final String REQUEST_RESTART = "RESTART";
     public static final String LIST_SESSIONS = "LIST_SESSIONS";
     public static final String GET_PLAYER_INFO = "GET_PLAYER_INFO";
+    public static final String PONG = "PONG";
+    public static final String SPECTATE = "SPECTATE";
+    public static final String UNSPECTATE = "UNSPECTATE";
+    public static final String QUEUE = "QUEUE";
+    public static final String LEAVE_QUEUE = "LEAVE_QUEUE";
+    public static final String PLAY_AI = "PLAY_AI";
 
     // Server to Client messages
     public static final String SERVER_CONNECTED = "CONNECTED";
@@ -31,18 +37,59 @@ public class MessageProtocol {
     public static final String RESTART_REJECTED = "RESTART_REJECTED";
     public static final String SESSION_LIST = "SESSION_LIST";
     public static final String SESSION_LIST_UPDATE = "SESSION_LIST_UPDATE";
+    public static final String SESSION_ADDED = "SESSION_ADDED";
+    public static final String SESSION_REMOVED = "SESSION_REMOVED";
     public static final String PLAYER_INFO = "PLAYER_INFO";
     public static final String PLAYER_JOINED = "PLAYER_JOINED";
     public static final String OPPONENT_DISCONNECTED = "OPPONENT_DISCONNECTED";
     public static final String GAME_OVER = "GAME_OVER";
+    public static final String PING = "PING";
+    public static final String SESSION_RESUMING = "SESSION_RESUMING";
+    public static final String SESSION_RESUMED = "SESSION_RESUMED";
+    public static final String SPECTATE_STATE = "SPECTATE_STATE";
+    public static final String SPECTATE_MOVE = "SPECTATE_MOVE";
+    public static final String SPECTATE_START = "SPECTATE_START";
+    public static final String SPECTATE_ENDED = "SPECTATE_ENDED";
+    public static final String QUEUED = "QUEUED";
+    public static final String QUEUE_LEFT = "QUEUE_LEFT";
+    public static final String MATCH_FOUND = "MATCH_FOUND";
+    public static final String RULES = "RULES";
+
+    // Hot-path lines, built once so sending a move or turn change formats nothing
+    public static final String TURN_CHANGE_BLACK = TURN_CHANGE + ":black";
+    public static final String TURN_CHANGE_WHITE = TURN_CHANGE + ":white";
+    private static final String[] MOVE_LINES = new String[GameBoard.CELLS];
+
+    static {
+        for (int cell = 0; cell < GameBoard.CELLS; cell++) {
+            MOVE_LINES[cell] = MAKE_MOVE + ":" + cell / GameBoard.SIZE + "," + cell % GameBoard.SIZE;
+        }
+    }
 
     // Message formats
     public static String formatConnectMessage(String playerName, boolean isHost) {
-        return String.format("PLAYER_INFO:%s:%s", playerName, isHost);
+        return PLAYER_INFO + ":" + playerName + ":" + isHost;
     }
 
+    /**
+     * Handshake that also asks for the binary protocol when binary is set
+     */
+    public static String formatConnectMessage(String playerName, boolean isHost, boolean binary) {
+        return binary ? formatConnectMessage(playerName, isHost) + ":binary" : formatConnectMessage(playerName, isHost);
+    }
+
+    /**
+     * "MOVE:row,col"; on-board moves come from a prebuilt table
+     */
     public static String formatMoveMessage(int row, int col) {
-        return String.format("MOVE:%d,%d", row, col);
+        if (row >= 0 && row < GameBoard.SIZE && col >= 0 && col < GameBoard.SIZE) {
+            return MOVE_LINES[row * GameBoard.SIZE + col];
+        }
+        return MAKE_MOVE + ":" + row + "," + col;
+    }
+
+    public static String formatTurnChange(boolean blackToMove) {
+        return blackToMove ? TURN_CHANGE_BLACK : TURN_CHANGE_WHITE;
     }
 
     public static String formatChatMessage(String sender, String message) {
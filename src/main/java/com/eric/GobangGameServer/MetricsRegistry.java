@@ -0,0 +1,186 @@
+package com.eric.GobangGameServer;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of server metrics rendered in the Prometheus text format. Counters
+ * and histogram buckets are striped LongAdders, so recording on the hot path
+ * never takes a lock; gauges are sampled only when scraped.
+ */
+public class MetricsRegistry {
+
+    private interface Metric {
+        void writeTo(StringBuilder out);
+    }
+
+    /**
+     * Monotonic counter
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    /**
+     * Fixed-bucket histogram of durations, exposed in seconds
+     */
+    public static final class Histogram {
+        private final long[] boundsNanos;
+        private final LongAdder[] buckets;
+        private final LongAdder sumNanos = new LongAdder();
+
+        private Histogram(long[] boundsNanos) {
+            this.boundsNanos = boundsNanos;
+            this.buckets = new LongAdder[boundsNanos.length + 1];
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void recordNanos(long nanos) {
+            int i = 0;
+            while (i < boundsNanos.length && nanos > boundsNanos[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sumNanos.add(nanos);
+        }
+
+        public long getCount() {
+            long count = 0;
+            for (LongAdder bucket : buckets) {
+                count += bucket.sum();
+            }
+            return count;
+        }
+
+        /**
+         * Upper bound of the bucket holding the percentile (0-100), or -1 if it is in the overflow bucket
+         */
+        public long getPercentileNanos(double percentile) {
+            long count = getCount();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < boundsNanos.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    return boundsNanos[i];
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final List<Metric> metrics = new CopyOnWriteArrayList<>();
+
+    public Counter counter(String name, String help) {
+        Counter counter = new Counter();
+        metrics.add(out -> {
+            header(out, name, help, "counter");
+            sample(out, name, "", counter.get());
+        });
+        return counter;
+    }
+
+    /**
+     * One counter per label value, indexed like the values array
+     */
+    public Counter[] counters(String name, String help, String label, String[] values) {
+        Counter[] counters = new Counter[values.length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new Counter();
+        }
+        metrics.add(out -> {
+            header(out, name, help, "counter");
+            for (int i = 0; i < counters.length; i++) {
+                sample(out, name, label + "=\"" + values[i] + "\"", counters[i].get());
+            }
+        });
+        return counters;
+    }
+
+    /**
+     * Counter maintained elsewhere, read when scraped
+     */
+    public void counter(String name, String help, LongSupplier value) {
+        metrics.add(out -> {
+            header(out, name, help, "counter");
+            sample(out, name, "", value.getAsLong());
+        });
+    }
+
+    public void gauge(String name, String help, LongSupplier value) {
+        metrics.add(out -> {
+            header(out, name, help, "gauge");
+            sample(out, name, "", value.getAsLong());
+        });
+    }
+
+    public Histogram histogram(String name, String help, TimeUnit unit, long... bounds) {
+        long[] boundsNanos = new long[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            boundsNanos[i] = unit.toNanos(bounds[i]);
+        }
+        Histogram histogram = new Histogram(boundsNanos);
+
+        metrics.add(out -> {
+            header(out, name, help, "histogram");
+            long cumulative = 0;
+            for (int i = 0; i < boundsNanos.length; i++) {
+                cumulative += histogram.buckets[i].sum();
+                sample(out, name + "_bucket", "le=\"" + seconds(boundsNanos[i]) + "\"", cumulative);
+            }
+            cumulative += histogram.buckets[boundsNanos.length].sum();
+            sample(out, name + "_bucket", "le=\"+Inf\"", cumulative);
+            out.append(name).append("_sum ").append(seconds(histogram.sumNanos.sum())).append('\n');
+            sample(out, name + "_count", "", cumulative);
+        });
+        return histogram;
+    }
+
+    /**
+     * Render every metric in the Prometheus text exposition format
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Metric metric : metrics) {
+            metric.writeTo(out);
+        }
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+}
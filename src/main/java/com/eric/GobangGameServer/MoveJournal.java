@@ -0,0 +1,459 @@
+package com.eric.GobangGameServer;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only journal of session creation, joins and accepted moves, written
+ * as fixed-size records into memory-mapped segment files. Appending claims a
+ * slot with one atomic add and copies 64 bytes into the mapping, so callers
+ * never wait on I/O; a background thread forces dirty segments to disk every
+ * sync interval (group commit). A JVM crash loses nothing since the page
+ * cache survives it; an OS crash loses at most one sync interval.
+ *
+ * Record layout: crc32 (of bytes 4-63), type, row, col, name length,
+ * session number, 4 reserved bytes, then up to 48 bytes of UTF-8 name.
+ * CREATE records keep the session's rule variant in the row byte.
+ */
+public class MoveJournal {
+    private static final Logger logger = LoggerFactory.getLogger(MoveJournal.class);
+
+    static final int RECORD_SIZE = 64;
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_NAME_BYTES = RECORD_SIZE - HEADER_SIZE;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final byte CREATE = 1;
+    private static final byte JOIN = 2;
+    private static final byte MOVE = 3;
+    private static final byte RESTART = 4;
+    private static final byte END = 5;
+
+    /**
+     * Game that was still in progress when the journal was last written
+     */
+    public static final class RecoveredGame {
+        private final int sessionNumber;
+        private final String hostName;
+        private final RuleVariant rules;
+        private String guestName;
+        private int[] moves = new int[16];
+        private int moveCount;
+
+        private RecoveredGame(int sessionNumber, String hostName, RuleVariant rules) {
+            this.sessionNumber = sessionNumber;
+            this.hostName = hostName;
+            this.rules = rules;
+        }
+
+        private void addMove(int row, int col) {
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moveCount * 2);
+            }
+            moves[moveCount++] = row * GameBoard.SIZE + col;
+        }
+
+        public int getSessionNumber() {
+            return sessionNumber;
+        }
+
+        public String getHostName() {
+            return hostName;
+        }
+
+        public String getGuestName() {
+            return guestName;
+        }
+
+        public RuleVariant getRules() {
+            return rules;
+        }
+
+        /**
+         * Accepted moves in order, each encoded as row * 15 + col; black moved first
+         */
+        public int[] getMoves() {
+            return Arrays.copyOf(moves, moveCount);
+        }
+    }
+
+    /**
+     * One mapped segment file
+     */
+    private static final class Segment {
+        private final int index;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int capacity;
+        private final AtomicInteger claimed = new AtomicInteger();
+        private final AtomicInteger committed = new AtomicInteger();
+        private int synced;
+
+        Segment(int index, Path path, int size) throws IOException {
+            this.index = index;
+            this.path = path;
+            this.capacity = size / RECORD_SIZE * RECORD_SIZE;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        /**
+         * Force the mapping if anything was committed since the last sync; syncer thread only
+         */
+        void sync() {
+            int written = committed.get();
+            if (written != synced) {
+                buffer.force();
+                synced = written;
+            }
+        }
+
+        boolean isSealed() {
+            return committed.get() >= capacity;
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+
+    /**
+     * Per-thread scratch record, so appends allocate nothing
+     */
+    private static final class RecordEncoder {
+        private final byte[] record = new byte[RECORD_SIZE];
+        private final CRC32 crc = new CRC32();
+    }
+
+    private static final ThreadLocal<RecordEncoder> ENCODER = ThreadLocal.withInitial(RecordEncoder::new);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ScheduledExecutorService syncer;
+    private final Queue<Segment> sealedSegments = new ConcurrentLinkedQueue<>();
+    private final List<Path> obsoleteSegments = new ArrayList<>();
+    // Segment holding each live session's CREATE record, to know which files can be deleted
+    private final Map<Integer, Integer> liveSessionSegments = new ConcurrentHashMap<>();
+    private volatile Segment current;
+    private volatile boolean failed;
+
+    public MoveJournal(Path directory, int segmentSize, long syncInterval, TimeUnit unit) throws IOException {
+        this.directory = directory;
+        this.segmentSize = Math.max(segmentSize, RECORD_SIZE * 16);
+        Files.createDirectories(directory);
+
+        this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        syncer.scheduleWithFixedDelay(this::sync, syncInterval, syncInterval, unit);
+    }
+
+    /**
+     * Replay every segment in the directory, then start a fresh segment that
+     * holds only the games still in progress and delete the old files. Must be
+     * called once, before any append.
+     */
+    public synchronized List<RecoveredGame> recover() throws IOException {
+        Map<Integer, RecoveredGame> games = new LinkedHashMap<>();
+        List<Path> segments = listSegments();
+        int lastIndex = 0;
+
+        for (Path path : segments) {
+            lastIndex = Math.max(lastIndex, segmentIndex(path));
+            replay(path, games);
+        }
+
+        List<RecoveredGame> inProgress = new ArrayList<>();
+        for (RecoveredGame game : games.values()) {
+            if (game.guestName != null) {
+                inProgress.add(game);
+            }
+        }
+
+        current = new Segment(lastIndex + 1, segmentPath(lastIndex + 1), segmentSize);
+        for (RecoveredGame game : inProgress) {
+            sessionCreated(game.sessionNumber, game.hostName, game.rules);
+            sessionJoined(game.sessionNumber, game.guestName);
+            for (int i = 0; i < game.moveCount; i++) {
+                moveAccepted(game.sessionNumber, game.moves[i] / GameBoard.SIZE, game.moves[i] % GameBoard.SIZE);
+            }
+        }
+        current.buffer.force();
+
+        for (Path path : segments) {
+            Files.deleteIfExists(path);
+        }
+
+        if (!segments.isEmpty()) {
+            logger.info("Recovered {} games in progress from {} journal segments", inProgress.size(), segments.size());
+        }
+        return inProgress;
+    }
+
+    private static void replay(Path path, Map<Integer, RecoveredGame> games) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32 crc = new CRC32();
+            byte[] record = new byte[RECORD_SIZE];
+
+            // Concurrent appends can leave an unwritten slot before written ones, so scan every slot
+            for (int offset = 0; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+                buffer.get(offset, record);
+                crc.reset();
+                crc.update(record, 4, RECORD_SIZE - 4);
+                int stored = ((record[0] & 0xFF) << 24) | ((record[1] & 0xFF) << 16)
+                        | ((record[2] & 0xFF) << 8) | (record[3] & 0xFF);
+                if (stored != (int) crc.getValue()) {
+                    continue;
+                }
+
+                byte type = record[4];
+                int row = record[5];
+                int col = record[6];
+                int nameLength = record[7];
+                int session = buffer.getInt(offset + 8);
+                RecoveredGame game = games.get(session);
+
+                switch (type) {
+                    case CREATE:
+                        games.put(session, new RecoveredGame(session,
+                                new String(record, HEADER_SIZE, nameLength, StandardCharsets.UTF_8),
+                                row < RuleVariant.VALUES.length ? RuleVariant.VALUES[row] : RuleVariant.FREESTYLE));
+                        break;
+                    case JOIN:
+                        if (game != null) {
+                            game.guestName = new String(record, HEADER_SIZE, nameLength, StandardCharsets.UTF_8);
+                        }
+                        break;
+                    case MOVE:
+                        if (game != null) {
+                            game.addMove(row, col);
+                        }
+                        break;
+                    case RESTART:
+                        if (game != null) {
+                            game.moveCount = 0;
+                        }
+                        break;
+                    case END:
+                        games.remove(session);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    public void sessionCreated(int session, String hostName, RuleVariant rules) {
+        liveSessionSegments.put(session, current.index);
+        append(CREATE, session, rules.ordinal(), 0, hostName);
+    }
+
+    public void sessionJoined(int session, String guestName) {
+        append(JOIN, session, 0, 0, guestName);
+    }
+
+    public void moveAccepted(int session, int row, int col) {
+        append(MOVE, session, row, col, null);
+    }
+
+    public void gameRestarted(int session) {
+        append(RESTART, session, 0, 0, null);
+    }
+
+    public void sessionEnded(int session) {
+        append(END, session, 0, 0, null);
+        liveSessionSegments.remove(session);
+    }
+
+    private void append(byte type, int session, int row, int col, String name) {
+        if (failed) {
+            return;
+        }
+
+        byte[] nameBytes = name == null ? null : encodeName(name);
+        while (true) {
+            Segment segment = current;
+            int offset = segment.claimed.getAndAdd(RECORD_SIZE);
+            if (offset >= 0 && offset + RECORD_SIZE <= segment.capacity) {
+                write(segment.buffer, offset, type, session, row, col, nameBytes);
+                segment.committed.addAndGet(RECORD_SIZE);
+                return;
+            }
+            if (!roll(segment)) {
+                return;
+            }
+        }
+    }
+
+    private static void write(MappedByteBuffer buffer, int offset, byte type, int session,
+                              int row, int col, byte[] name) {
+        RecordEncoder encoder = ENCODER.get();
+        byte[] record = encoder.record;
+        int nameLength = name == null ? 0 : name.length;
+
+        Arrays.fill(record, (byte) 0);
+        record[4] = type;
+        record[5] = (byte) row;
+        record[6] = (byte) col;
+        record[7] = (byte) nameLength;
+        putInt(record, 8, session);
+        if (name != null) {
+            System.arraycopy(name, 0, record, HEADER_SIZE, nameLength);
+        }
+
+        encoder.crc.reset();
+        encoder.crc.update(record, 4, RECORD_SIZE - 4);
+        putInt(record, 0, (int) encoder.crc.getValue());
+        buffer.put(offset, record);
+    }
+
+    private static void putInt(byte[] bytes, int index, int value) {
+        bytes[index] = (byte) (value >>> 24);
+        bytes[index + 1] = (byte) (value >>> 16);
+        bytes[index + 2] = (byte) (value >>> 8);
+        bytes[index + 3] = (byte) value;
+    }
+
+    private static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_NAME_BYTES) {
+            return bytes;
+        }
+        // Cut on a character boundary
+        int end = MAX_NAME_BYTES;
+        while (end > 0 && (bytes[end] & 0xC0) == 0x80) {
+            end--;
+        }
+        return Arrays.copyOf(bytes, end);
+    }
+
+    /**
+     * Replace a full segment with the next one; false if the journal had to be disabled
+     */
+    private synchronized boolean roll(Segment full) {
+        if (current != full) {
+            return true;
+        }
+        try {
+            Segment next = new Segment(full.index + 1, segmentPath(full.index + 1), segmentSize);
+            current = next;
+            sealedSegments.add(full);
+            return true;
+        } catch (IOException e) {
+            failed = true;
+            logger.error("Move journal disabled, cannot create segment {}: {}", full.index + 1, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Group commit: force whatever was appended since the last pass, then close
+     * sealed segments and delete those no live session still needs
+     */
+    private void sync() {
+        try {
+            Segment segment;
+            while ((segment = sealedSegments.peek()) != null && segment.isSealed()) {
+                segment.sync();
+                segment.close();
+                sealedSegments.poll();
+                synchronized (obsoleteSegments) {
+                    obsoleteSegments.add(segment.path);
+                }
+            }
+            if (current != null) {
+                current.sync();
+                deleteObsoleteSegments();
+            }
+        } catch (Exception e) {
+            logger.error("Move journal sync failed: {}", e.getMessage());
+        }
+    }
+
+    private void deleteObsoleteSegments() throws IOException {
+        int oldestLive = current.index;
+        for (int index : liveSessionSegments.values()) {
+            oldestLive = Math.min(oldestLive, index);
+        }
+
+        synchronized (obsoleteSegments) {
+            for (int i = obsoleteSegments.size() - 1; i >= 0; i--) {
+                Path path = obsoleteSegments.get(i);
+                if (segmentIndex(path) < oldestLive) {
+                    Files.deleteIfExists(path);
+                    obsoleteSegments.remove(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Flush everything and stop the sync thread
+     */
+    public void close() {
+        syncer.shutdown();
+        try {
+            syncer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Segment segment = current;
+        if (segment != null) {
+            segment.sync();
+            segment.close();
+        }
+    }
+
+    private List<Path> listSegments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        segments.sort((a, b) -> Integer.compare(segmentIndex(a), segmentIndex(b)));
+        return segments;
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private static int segmentIndex(Path path) {
+        String name = path.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,338 @@
+package com.eric.GobangGameServer;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking connection owned by a single event loop.
+ * Reads are framed into lines and writes are performed on the loop thread;
+ * bytes the socket cannot take yet stay queued until it is writable again.
+ * Read and write buffers are leased from the server's {@link BufferPool}
+ * and handed back as soon as they are drained, so an idle connection holds
+ * none. In lean mode the write queue itself is dropped whenever it empties.
+ * A client that opts into the binary protocol at handshake switches both
+ * directions to {@link BinaryProtocol} frames.
+ */
+public class NioConnection implements Connection {
+    private static final Logger logger = LoggerFactory.getLogger(NioConnection.class);
+    static final int READ_BUFFER_SIZE = 8192;
+
+    private final SocketChannel channel;
+    private final NioServer.EventLoop eventLoop;
+    private final int playerId;
+    private final String remoteAddress;
+    private final BufferPool bufferPool;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final Runnable onClose;
+    private final boolean lean;
+    // Created on the first write; in lean mode released again once drained
+    private Queue<BufferPool.Lease> pendingWrites;
+    private volatile int pendingBytes = 0;
+    // Held only while a partial line is waiting for the rest of its bytes
+    private BufferPool.Lease readLease;
+    private volatile int readBufferBytes = 0;
+    private Runnable writableListener;
+    private SelectionKey key;
+    private volatile Player player;
+    // Set on the loop thread during the handshake, read by writers on any thread
+    private volatile boolean binary;
+
+    /**
+     * @param lean    drop the write queue whenever it drains, so idle connections hold none
+     * @param onClose run once, when the connection is closed for any reason
+     */
+    public NioConnection(SocketChannel channel, NioServer.EventLoop eventLoop, BufferPool bufferPool,
+                         int playerId, boolean lean, Runnable onClose) {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+        this.bufferPool = bufferPool;
+        this.playerId = playerId;
+        this.lean = lean;
+        this.onClose = onClose;
+
+        Socket socket = channel.socket();
+        this.remoteAddress = socket.getInetAddress() + ":" + socket.getPort();
+    }
+
+    public SocketChannel getChannel() {
+        return channel;
+    }
+
+    public int getPlayerId() {
+        return playerId;
+    }
+
+    public Player getPlayer() {
+        return player;
+    }
+
+    public void setPlayer(Player player) {
+        this.player = player;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Read available bytes and hand every complete line, or binary frame once
+     * the handshake has asked for them, to the server. Returns false once the
+     * peer has closed the stream.
+     */
+    boolean onReadable(GameServer server) throws IOException {
+        if (readLease == null) {
+            readLease = bufferPool.acquire(READ_BUFFER_SIZE);
+            readBufferBytes = readLease.buffer().capacity();
+        }
+        ByteBuffer readBuffer = readLease.buffer();
+        int read = channel.read(readBuffer);
+        if (read < 0) {
+            return false;
+        }
+
+        readBuffer.flip();
+        if (!binary) {
+            readLines(server, readBuffer);
+        }
+        // The handshake line may switch the protocol with frames already behind it
+        if (binary && !closed.get()) {
+            readFrames(server, readBuffer);
+        }
+        if (closed.get()) {
+            return true;
+        }
+
+        if (!readBuffer.hasRemaining()) {
+            // Nothing left over; the next read leases a fresh buffer
+            releaseReadBuffer();
+            return true;
+        }
+
+        readBuffer.compact();
+
+        if (!readBuffer.hasRemaining()) {
+            logger.warn("Line too long from {}, closing connection", remoteAddress);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Dispatch complete lines, leaving the position at the first unconsumed
+     * byte. Stops early if the connection closes or switches to binary.
+     */
+    private void readLines(GameServer server, ByteBuffer readBuffer) {
+        int lineStart = readBuffer.position();
+        int limit = readBuffer.limit();
+
+        for (int i = lineStart; i < limit; i++) {
+            if (readBuffer.get(i) == '\n') {
+                int lineEnd = i;
+                if (lineEnd > lineStart && readBuffer.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+
+                // Decode into the loop's shared char buffer instead of a new String
+                readBuffer.limit(lineEnd).position(lineStart);
+                CharSequence line = eventLoop.decodeLine(readBuffer);
+                readBuffer.limit(limit);
+                lineStart = i + 1;
+
+                server.onNioMessage(this, line, eventLoop.getCommand());
+                if (closed.get() || binary) {
+                    break;
+                }
+            }
+        }
+        readBuffer.position(lineStart);
+    }
+
+    /**
+     * Dispatch complete binary frames, leaving the position at the first unconsumed byte
+     */
+    private void readFrames(GameServer server, ByteBuffer readBuffer) throws IOException {
+        Command command = eventLoop.getCommand();
+        while (BinaryProtocol.decode(readBuffer, command)) {
+            server.onNioCommand(this, command);
+            if (closed.get()) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean enableBinary() {
+        binary = true;
+        return true;
+    }
+
+    @Override
+    public boolean isBinary() {
+        return binary;
+    }
+
+    @Override
+    public void write(CharSequence lines) {
+        if (closed.get()) {
+            return;
+        }
+
+        // Encoded on the caller's thread, so the text needs no copy to cross to the loop
+        BufferPool.Lease encoded = binary ? encodeBinary(lines) : bufferPool.encode(lines);
+        if (eventLoop.inEventLoop()) {
+            enqueue(encoded);
+        } else {
+            eventLoop.execute(() -> enqueue(encoded));
+        }
+    }
+
+    @Override
+    public void writeFrame(Frame frame) {
+        if (!eventLoop.inEventLoop()) {
+            eventLoop.execute(() -> writeFrame(frame));
+            return;
+        }
+
+        // Each connection gets its own view of the shared bytes
+        enqueue(BufferPool.unpooled(frame.buffer(binary)));
+    }
+
+    private BufferPool.Lease encodeBinary(CharSequence lines) {
+        BufferPool.Lease lease = bufferPool.acquire(BinaryProtocol.encodedLength(lines));
+        BinaryProtocol.encode(lines, lease.buffer());
+        lease.buffer().flip();
+        return lease;
+    }
+
+    private void enqueue(BufferPool.Lease lease) {
+        if (closed.get()) {
+            lease.release();
+            return;
+        }
+
+        if (pendingWrites == null) {
+            pendingWrites = new ArrayDeque<>(4);
+        }
+        pendingBytes += lease.buffer().remaining();
+        pendingWrites.add(lease);
+        flush();
+    }
+
+    @Override
+    public int getPendingBytes() {
+        return pendingBytes;
+    }
+
+    @Override
+    public int getRetainedBytes() {
+        return readBufferBytes + pendingBytes;
+    }
+
+    @Override
+    public void setWritableListener(Runnable listener) {
+        this.writableListener = listener;
+    }
+
+    @Override
+    public Executor getWriteExecutor() {
+        return eventLoop;
+    }
+
+    /**
+     * Write as much queued data as the socket accepts, registering for
+     * write readiness when the kernel buffer is full. Loop thread only.
+     */
+    void flush() {
+        if (closed.get() || key == null || pendingWrites == null) {
+            return;
+        }
+
+        try {
+            BufferPool.Lease lease;
+            while ((lease = pendingWrites.peek()) != null) {
+                ByteBuffer buffer = lease.buffer();
+                pendingBytes -= channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                pendingWrites.poll();
+                lease.release();
+            }
+            if (lean) {
+                pendingWrites = null;
+            }
+
+            if ((key.interestOps() & SelectionKey.OP_WRITE) != 0) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                if (writableListener != null) {
+                    writableListener.run();
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Write to {} failed: {}", remoteAddress, e.getMessage());
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (key != null) {
+            key.cancel();
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Error closing channel {}: {}", remoteAddress, e.getMessage());
+        }
+        // The loop may be mid-read or mid-flush, so its buffers go back from its own thread
+        eventLoop.execute(this::releaseBuffers);
+        onClose.run();
+    }
+
+    /**
+     * Return every leased buffer to the pool after close. Loop thread only.
+     */
+    private void releaseBuffers() {
+        releaseReadBuffer();
+        if (pendingWrites != null) {
+            BufferPool.Lease lease;
+            while ((lease = pendingWrites.poll()) != null) {
+                lease.release();
+            }
+            pendingWrites = null;
+        }
+        pendingBytes = 0;
+    }
+
+    private void releaseReadBuffer() {
+        if (readLease != null) {
+            readLease.release();
+            readLease = null;
+            readBufferBytes = 0;
+        }
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+}
@@ -0,0 +1,226 @@
+package com.eric.GobangGameServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking transport: one acceptor plus a fixed set of selector-based
+ * event loops that frame lines and dispatch them to the {@link GameServer}
+ */
+public class NioServer {
+    private static final Logger logger = LoggerFactory.getLogger(NioServer.class);
+
+    private final GameServer server;
+    private final BufferPool bufferPool;
+    private final EventLoop[] eventLoops;
+    private final boolean leanConnections;
+    private ServerSocketChannel serverChannel;
+    private int nextLoop = 0;
+
+    public NioServer(GameServer server, BufferPool bufferPool, int ioThreads, boolean leanConnections) {
+        this.server = server;
+        this.bufferPool = bufferPool;
+        this.leanConnections = leanConnections;
+        this.eventLoops = new EventLoop[Math.max(1, ioThreads)];
+    }
+
+    public void bind(int port) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().setReuseAddress(true);
+        serverChannel.bind(new InetSocketAddress(port));
+
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new EventLoop(i);
+            eventLoops[i].start();
+        }
+
+        logger.info("NIO transport bound with {} event loop(s)", eventLoops.length);
+    }
+
+    /**
+     * Accept a connection, blocking until one arrives
+     */
+    public SocketChannel accept() throws IOException {
+        return serverChannel.accept();
+    }
+
+    /**
+     * Hand an accepted channel to the next event loop (round-robin)
+     */
+    public NioConnection register(SocketChannel channel, int playerId, Runnable onClose) {
+        EventLoop loop = eventLoops[nextLoop];
+        nextLoop = (nextLoop + 1) % eventLoops.length;
+
+        NioConnection connection = new NioConnection(channel, loop, bufferPool, playerId, leanConnections, onClose);
+        loop.execute(() -> loop.register(connection));
+        return connection;
+    }
+
+    public void stop() {
+        try {
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            logger.error("Error closing server channel: {}", e.getMessage());
+        }
+
+        for (EventLoop loop : eventLoops) {
+            if (loop != null) {
+                loop.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Single-threaded selector loop owning a subset of the connections
+     */
+    class EventLoop implements Runnable, Executor {
+        private final Selector selector;
+        private final Thread thread;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final CharBuffer lineChars = CharBuffer.allocate(NioConnection.READ_BUFFER_SIZE);
+        private final Command command = new Command();
+        private volatile boolean running = true;
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "nio-loop-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        boolean inEventLoop() {
+            return Thread.currentThread() == thread;
+        }
+
+        /**
+         * Run a task on this loop's thread
+         */
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        /**
+         * Decode one line of UTF-8 into this loop's reusable char buffer.
+         * The result is only valid until the next line is decoded.
+         */
+        CharSequence decodeLine(ByteBuffer bytes) {
+            lineChars.clear();
+            utf8.reset();
+            utf8.decode(bytes, lineChars, true);
+            utf8.flush(lineChars);
+            lineChars.flip();
+            return lineChars;
+        }
+
+        Command getCommand() {
+            return command;
+        }
+
+        void register(NioConnection connection) {
+            try {
+                SocketChannel channel = connection.getChannel();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connection.setKey(key);
+            } catch (IOException e) {
+                logger.error("Failed to register connection {}: {}",
+                        connection.getRemoteAddress(), e.getMessage());
+                server.onNioDisconnect(connection);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    runTasks();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        processKey(key);
+                    }
+                } catch (ClosedChannelException e) {
+                    // Connection closed concurrently, nothing to do
+                } catch (IOException e) {
+                    if (running) {
+                        logger.error("Event loop error: {}", e.getMessage());
+                    }
+                } catch (Exception e) {
+                    logger.error("Unexpected error in event loop: {}", e.getMessage(), e);
+                }
+            }
+
+            try {
+                selector.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+
+        private void processKey(SelectionKey key) {
+            NioConnection connection = (NioConnection) key.attachment();
+
+            try {
+                if (key.isValid() && key.isReadable() && !connection.onReadable(server)) {
+                    server.onNioDisconnect(connection);
+                    return;
+                }
+                if (key.isValid() && key.isWritable()) {
+                    connection.flush();
+                }
+            } catch (IOException e) {
+                logger.debug("Connection {} error: {}", connection.getRemoteAddress(), e.getMessage());
+                server.onNioDisconnect(connection);
+            } catch (CancelledKeyException e) {
+                server.onNioDisconnect(connection);
+            }
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    logger.error("Error running event loop task: {}", e.getMessage(), e);
+                }
+            }
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+    }
+}
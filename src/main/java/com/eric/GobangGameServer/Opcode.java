@@ -0,0 +1,62 @@
+package com.eric.GobangGameServer;
+
+/**
+ * Client-to-server command verbs, indexed by ordinal in the dispatch table.
+ * Each also has a fixed one-byte code for the binary protocol, so the enum
+ * order can change without breaking binary clients.
+ */
+public enum Opcode {
+    CREATE_SESSION(MessageProtocol.CREATE_SESSION, 0x01),
+    JOIN_SESSION(MessageProtocol.JOIN_SESSION, 0x02),
+    MOVE(MessageProtocol.MAKE_MOVE, 0x03),
+    CHAT(MessageProtocol.SEND_CHAT, 0x04),
+    RESTART(MessageProtocol.REQUEST_RESTART, 0x05),
+    DISCONNECT(MessageProtocol.CLIENT_DISCONNECT, 0x06),
+    LIST_SESSIONS(MessageProtocol.LIST_SESSIONS, 0x07),
+    GET_PLAYER_INFO(MessageProtocol.GET_PLAYER_INFO, 0x08),
+    PONG(MessageProtocol.PONG, 0x09),
+    SPECTATE(MessageProtocol.SPECTATE, 0x0A),
+    UNSPECTATE(MessageProtocol.UNSPECTATE, 0x0B),
+    QUEUE(MessageProtocol.QUEUE, 0x0C),
+    LEAVE_QUEUE(MessageProtocol.LEAVE_QUEUE, 0x0D),
+    PLAY_AI(MessageProtocol.PLAY_AI, 0x0E),
+    UNKNOWN("", 0x00);
+
+    // Cached because values() clones the array on every call
+    static final Opcode[] VALUES = values();
+    public static final int COUNT = VALUES.length;
+    private static final Opcode[] BY_CODE = new Opcode[256];
+
+    static {
+        for (Opcode opcode : VALUES) {
+            BY_CODE[opcode.code] = opcode;
+        }
+    }
+
+    private final String verb;
+    private final int code;
+
+    Opcode(String verb, int code) {
+        this.verb = verb;
+        this.code = code;
+    }
+
+    public String getVerb() {
+        return verb;
+    }
+
+    /**
+     * Binary protocol code
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Opcode for a binary protocol code, UNKNOWN if unassigned
+     */
+    public static Opcode fromCode(int code) {
+        Opcode opcode = BY_CODE[code & 0xFF];
+        return opcode != null ? opcode : UNKNOWN;
+    }
+}
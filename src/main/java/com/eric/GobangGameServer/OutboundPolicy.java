@@ -0,0 +1,115 @@
+package com.eric.GobangGameServer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-connection outbound budgets and what to do when a client stops reading,
+ * plus counters for how often each action fires
+ */
+public class OutboundPolicy {
+
+    /**
+     * Action for lobby traffic (session list updates)
+     */
+    public enum LobbyAction {
+        DROP,
+        COALESCE
+    }
+
+    /**
+     * Action for in-game traffic once the budget is exhausted
+     */
+    public enum GameAction {
+        DROP,
+        DISCONNECT
+    }
+
+    private final int maxMessages;
+    private final int maxBytes;
+    private final LobbyAction lobbyAction;
+    private final GameAction gameAction;
+    private final boolean leanBuffers;
+
+    private final LongAdder lobbyDropped = new LongAdder();
+    private final LongAdder lobbyCoalesced = new LongAdder();
+    private final LongAdder gameDropped = new LongAdder();
+    private final LongAdder slowDisconnects = new LongAdder();
+
+    public OutboundPolicy(int maxMessages, int maxBytes, LobbyAction lobbyAction, GameAction gameAction) {
+        this(maxMessages, maxBytes, lobbyAction, gameAction, false);
+    }
+
+    /**
+     * @param leanBuffers release each player's batch buffer after every flush
+     *                    instead of keeping it for the next one
+     */
+    public OutboundPolicy(int maxMessages, int maxBytes, LobbyAction lobbyAction, GameAction gameAction,
+                          boolean leanBuffers) {
+        this.maxMessages = maxMessages;
+        this.maxBytes = maxBytes;
+        this.lobbyAction = lobbyAction;
+        this.gameAction = gameAction;
+        this.leanBuffers = leanBuffers;
+    }
+
+    public static OutboundPolicy fromConfig(ServerConfig config) {
+        return new OutboundPolicy(
+                config.getOutboundQueueSize(),
+                config.getOutboundMaxBytes(),
+                LobbyAction.valueOf(config.getLobbySlowConsumerPolicy().toUpperCase()),
+                GameAction.valueOf(config.getGameSlowConsumerPolicy().toUpperCase()),
+                config.isLeanConnections());
+    }
+
+    public int getMaxMessages() {
+        return maxMessages;
+    }
+
+    public int getMaxBytes() {
+        return maxBytes;
+    }
+
+    public LobbyAction getLobbyAction() {
+        return lobbyAction;
+    }
+
+    public GameAction getGameAction() {
+        return gameAction;
+    }
+
+    public boolean isLeanBuffers() {
+        return leanBuffers;
+    }
+
+    void recordLobbyDropped() {
+        lobbyDropped.increment();
+    }
+
+    void recordLobbyCoalesced() {
+        lobbyCoalesced.increment();
+    }
+
+    void recordGameDropped() {
+        gameDropped.increment();
+    }
+
+    void recordSlowDisconnect() {
+        slowDisconnects.increment();
+    }
+
+    public long getLobbyDropped() {
+        return lobbyDropped.sum();
+    }
+
+    public long getLobbyCoalesced() {
+        return lobbyCoalesced.sum();
+    }
+
+    public long getGameDropped() {
+        return gameDropped.sum();
+    }
+
+    public long getSlowDisconnects() {
+        return slowDisconnects.sum();
+    }
+}
@@ -0,0 +1,230 @@
+package com.eric.GobangGameServer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Bounded per-player queue of outgoing lines. Senders only enqueue; a single
+ * flush task on the connection's write executor coalesces everything pending
+ * into one write, so a slow client never stalls the thread that messages it.
+ * Once the client stops reading, the {@link OutboundPolicy} decides whether
+ * new messages are dropped, coalesced or cause a disconnect.
+ *
+ * There is one queue per connected player, so its counters and flags are
+ * plain volatile fields updated through field updaters rather than separate
+ * atomic objects, and the batch buffer is only allocated once there is
+ * something to send.
+ */
+public class OutboundQueue {
+    private static final int MAX_BATCH_MESSAGES = 64;
+    private static final int MAX_RETAINED_BATCH = 16 * 1024;
+
+    /**
+     * Outcome of offering a message
+     */
+    public enum Result {
+        QUEUED,
+        COALESCED,
+        DROPPED,
+        DISCONNECT
+    }
+
+    private final Connection connection;
+    private final OutboundPolicy policy;
+    // Protocol lines (String) or pre-encoded shared frames (Frame), in send order
+    private final Queue<Object> messages = new ConcurrentLinkedQueue<>();
+    private static final AtomicIntegerFieldUpdater<OutboundQueue> SIZE =
+            AtomicIntegerFieldUpdater.newUpdater(OutboundQueue.class, "size");
+    private static final AtomicIntegerFieldUpdater<OutboundQueue> QUEUED_BYTES =
+            AtomicIntegerFieldUpdater.newUpdater(OutboundQueue.class, "queuedBytes");
+    private static final AtomicIntegerFieldUpdater<OutboundQueue> FLUSH_SCHEDULED =
+            AtomicIntegerFieldUpdater.newUpdater(OutboundQueue.class, "flushScheduled");
+    private static final AtomicIntegerFieldUpdater<OutboundQueue> OVERFLOWED =
+            AtomicIntegerFieldUpdater.newUpdater(OutboundQueue.class, "overflowed");
+    private static final AtomicReferenceFieldUpdater<OutboundQueue, String> LATEST_LOBBY_MESSAGE =
+            AtomicReferenceFieldUpdater.newUpdater(OutboundQueue.class, String.class, "latestLobbyMessage");
+
+    private volatile int size;
+    private volatile int queuedBytes;
+    private volatile int flushScheduled;
+    private volatile int overflowed;
+    private volatile String latestLobbyMessage;
+    // Touched only by the running flush; null until the first one, and after every flush in lean mode
+    private StringBuilder batch;
+
+    public OutboundQueue(Connection connection, OutboundPolicy policy) {
+        this.connection = connection;
+        this.policy = policy;
+        connection.setWritableListener(this::scheduleFlush);
+    }
+
+    /**
+     * Queue in-game traffic. Over budget the message is dropped, or DISCONNECT
+     * is returned (once) so the owner can remove the slow client.
+     */
+    public Result offer(String message) {
+        return offerGame(message, lineBytes(message));
+    }
+
+    /**
+     * Queue a shared pre-encoded frame under the same budget and policy as in-game traffic
+     */
+    public Result offerFrame(Frame frame) {
+        return offerGame(frame, frame.length());
+    }
+
+    private Result offerGame(Object item, int bytes) {
+        if (overflowed != 0) {
+            return Result.DROPPED;
+        }
+
+        if (!enqueue(item, bytes)) {
+            if (policy.getGameAction() == OutboundPolicy.GameAction.DISCONNECT
+                    && OVERFLOWED.compareAndSet(this, 0, 1)) {
+                policy.recordSlowDisconnect();
+                return Result.DISCONNECT;
+            }
+            policy.recordGameDropped();
+            return Result.DROPPED;
+        }
+        return Result.QUEUED;
+    }
+
+    /**
+     * Queue lobby traffic. With COALESCE, if an older update is still unsent the
+     * client has fallen behind and the pending update is replaced by the full
+     * snapshot; with DROP the update is discarded when over budget.
+     */
+    public Result offerLobby(String message, String snapshot) {
+        if (policy.getLobbyAction() == OutboundPolicy.LobbyAction.COALESCE) {
+            if (LATEST_LOBBY_MESSAGE.compareAndSet(this, null, message)) {
+                scheduleFlush();
+                return Result.QUEUED;
+            }
+
+            latestLobbyMessage = snapshot;
+            scheduleFlush();
+            policy.recordLobbyCoalesced();
+            return Result.COALESCED;
+        }
+
+        if (!enqueue(message, lineBytes(message))) {
+            policy.recordLobbyDropped();
+            return Result.DROPPED;
+        }
+        return Result.QUEUED;
+    }
+
+    /**
+     * UTF-8 bytes of a line and its newline, the unit the byte budget is kept in
+     */
+    private static int lineBytes(String message) {
+        return BufferPool.encodedLength(message, 0, message.length()) + 1;
+    }
+
+    private boolean enqueue(Object item, int bytes) {
+        if (SIZE.incrementAndGet(this) > policy.getMaxMessages()
+                || QUEUED_BYTES.addAndGet(this, bytes) + connection.getPendingBytes() > policy.getMaxBytes()) {
+            SIZE.decrementAndGet(this);
+            QUEUED_BYTES.addAndGet(this, -bytes);
+            return false;
+        }
+
+        messages.add(item);
+        scheduleFlush();
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getQueuedBytes() {
+        return queuedBytes;
+    }
+
+    /**
+     * Bytes this queue holds for its player: unsent text as encoded, plus the batch buffer
+     */
+    public int getRetainedBytes() {
+        StringBuilder current = batch;
+        return queuedBytes + (current != null ? current.capacity() : 0);
+    }
+
+    private void scheduleFlush() {
+        if (FLUSH_SCHEDULED.compareAndSet(this, 0, 1)) {
+            connection.getWriteExecutor().execute(this::flush);
+        }
+    }
+
+    /**
+     * Drain pending lines into one batch and write it. Only one flush runs at a
+     * time, which keeps messages in order. While the connection still holds
+     * unwritten bytes nothing is drained; its writable listener reschedules us.
+     */
+    private void flush() {
+        boolean blocked = connection.getPendingBytes() > 0;
+
+        try {
+            if (!blocked) {
+                drain();
+            }
+        } finally {
+            flushScheduled = 0;
+            if (!blocked && (!messages.isEmpty() || latestLobbyMessage != null)) {
+                scheduleFlush();
+            }
+        }
+    }
+
+    private void drain() {
+        if (batch == null) {
+            batch = new StringBuilder(256);
+        }
+        batch.setLength(0);
+        int count = 0;
+        int bytes = 0;
+        Object item;
+
+        while (count < MAX_BATCH_MESSAGES && (item = messages.poll()) != null) {
+            if (item instanceof Frame) {
+                // Frames go out as their shared bytes, after any text batched ahead of them
+                Frame frame = (Frame) item;
+                if (batch.length() > 0) {
+                    connection.write(batch);
+                    batch.setLength(0);
+                }
+                connection.writeFrame(frame);
+                bytes += frame.length();
+            } else {
+                String message = (String) item;
+                batch.append(message).append('\n');
+                bytes += lineBytes(message);
+            }
+            count++;
+        }
+
+        if (count > 0) {
+            SIZE.addAndGet(this, -count);
+            QUEUED_BYTES.addAndGet(this, -bytes);
+        }
+
+        String lobbyMessage = LATEST_LOBBY_MESSAGE.getAndSet(this, null);
+        if (lobbyMessage != null) {
+            batch.append(lobbyMessage).append('\n');
+        }
+
+        if (batch.length() > 0) {
+            connection.write(batch);
+        }
+
+        // The connection has copied the text out, so the buffer can go
+        if (policy.isLeanBuffers()) {
+            batch = null;
+        } else if (batch.capacity() > MAX_RETAINED_BATCH) {
+            batch = new StringBuilder(256);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.eric.GobangGameServer;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Connection of a proxy player whose client is attached to another node.
+ * Each line written is relayed to that node, which delivers it to the
+ * real client.
+ */
+public class PeerConnection implements Connection {
+    private static final Executor DIRECT = Runnable::run;
+
+    private final ClusterNode node;
+    private final PeerLink origin;
+    private final String proxyId;
+    private final String prefix;
+
+    /**
+     * @param playerId the player's ID on the origin node
+     * @param proxyId  the proxy player's ID on this node
+     */
+    public PeerConnection(ClusterNode node, PeerLink origin, String playerId, String proxyId) {
+        this.node = node;
+        this.origin = origin;
+        this.proxyId = proxyId;
+        this.prefix = ClusterNode.OUT + " " + playerId + " ";
+    }
+
+    @Override
+    public void write(CharSequence lines) {
+        int start = 0;
+        for (int i = 0; i < lines.length(); i++) {
+            if (lines.charAt(i) == '\n') {
+                origin.send(prefix + lines.subSequence(start, i));
+                start = i + 1;
+            }
+        }
+        // Every change that ends the proxy's business here is followed by a message to it
+        node.releaseIfIdle(proxyId);
+    }
+
+    @Override
+    public Executor getWriteExecutor() {
+        // Sending only queues on the peer link
+        return DIRECT;
+    }
+
+    @Override
+    public void close() {
+        // The client's own node owns the socket
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return "peer " + origin.getNodeId();
+    }
+}
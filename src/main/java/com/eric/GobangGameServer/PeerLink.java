@@ -0,0 +1,115 @@
+package com.eric.GobangGameServer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Outbound half of the link to one cluster peer. A dedicated thread dials
+ * the peer, redialing after failures, and writes queued messages in
+ * batches with one flush each. Messages sent while the link is down are
+ * dropped; the peer rebuilds its view from the snapshot sent on reconnect.
+ */
+public class PeerLink {
+    private static final Logger logger = LoggerFactory.getLogger(PeerLink.class);
+    private static final long RETRY_MS = 1000;
+
+    private final String nodeId;
+    private final String host;
+    private final int port;
+    private final LinkedBlockingQueue<String> outbox = new LinkedBlockingQueue<>();
+    private volatile boolean connected;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    public PeerLink(String nodeId, String host, int port) {
+        this.nodeId = nodeId;
+        this.host = host;
+        this.port = port;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * @param localNodeId sent in the HELLO line that opens every connection
+     * @param onConnect   run on the link thread after each successful dial, before queued messages go out
+     */
+    public void start(String localNodeId, Runnable onConnect) {
+        thread = new Thread(() -> run(localNodeId, onConnect), "peer-link-" + nodeId);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Queue one message line; false if the link is down and it was dropped
+     */
+    public boolean send(String message) {
+        if (!connected) {
+            return false;
+        }
+        outbox.offer(message);
+        return true;
+    }
+
+    private void run(String localNodeId, Runnable onConnect) {
+        while (running) {
+            try (Socket socket = new Socket()) {
+                socket.connect(new InetSocketAddress(host, port), (int) RETRY_MS);
+                socket.setTcpNoDelay(true);
+                Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+                out.write(ClusterNode.HELLO + " " + localNodeId + "\n");
+                out.flush();
+
+                outbox.clear();
+                connected = true;
+                logger.info("Connected to cluster peer {} at {}:{}", nodeId, host, port);
+                onConnect.run();
+
+                while (running) {
+                    String message = outbox.take();
+                    do {
+                        out.write(message);
+                        out.write('\n');
+                    } while ((message = outbox.poll()) != null);
+                    out.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                if (connected) {
+                    logger.warn("Lost link to cluster peer {}: {}", nodeId, e.getMessage());
+                }
+            } finally {
+                connected = false;
+            }
+
+            try {
+                TimeUnit.MILLISECONDS.sleep(RETRY_MS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
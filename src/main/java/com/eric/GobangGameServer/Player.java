@@ -1,61 +1,98 @@
 // src/main/java/com/eric/GobangGameServer/Player.java
 package com.eric.GobangGameServer;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
-import java.net.Socket;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.function.Consumer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Represents a connected player
+ * Represents a connected player. Players are identified by an int ID; the
+ * "P"-prefixed string form only appears in protocol messages and logs.
+ * Most connections sit idle in the lobby, so per-player state is kept in
+ * primitive fields; timestamps are epoch millis or nanoTime values rather
+ * than date objects.
  */
 public class Player {
     private static final Logger logger = LoggerFactory.getLogger(Player.class);
 
-    private final String playerId;
+    /**
+     * Session ID meaning "not in a session"; real IDs start at 1
+     */
+    public static final int NO_SESSION = 0;
+
+    private final int id;
     private final String playerName;
-    private final Socket socket;
-    private PrintWriter output;
-    private BufferedReader input;
+    private final Connection connection;
+    private final OutboundQueue outbound;
     private boolean isHost;
-    private boolean isActive = true;
-    private LocalDateTime connectedAt;
-    private String currentSessionId;
+    private volatile boolean isActive = true;
+    private final long connectedAtMillis;
+    private volatile int currentSessionId = NO_SESSION;
+    private volatile int spectatingSessionId = NO_SESSION;
+    private volatile Matchmaker.Ticket matchTicket;
+    private Consumer<Player> slowConsumerHandler;
+    private volatile long lobbyVersion = -1;
+    private volatile long lastActivityNanos = System.nanoTime();
+    private volatile long pingSentNanos = 0;
+    private volatile TimingWheel.Timeout idleTimeout;
+    // Command rate-limit state, owned by RateLimits and allocated on the first limited command
+    private long[] rateBuckets;
 
-    public Player(String playerId, String playerName, Socket socket, boolean isHost) throws IOException {
-        this.playerId = playerId;
+    public Player(int id, String playerName, Connection connection, boolean isHost,
+                  OutboundPolicy outboundPolicy) {
+        this.id = id;
         this.playerName = playerName;
-        this.socket = socket;
+        this.connection = connection;
+        this.outbound = new OutboundQueue(connection, outboundPolicy);
         this.isHost = isHost;
-        this.connectedAt = LocalDateTime.now();
+        this.connectedAtMillis = System.currentTimeMillis();
+    }
 
-        // Initialize streams
-        this.output = new PrintWriter(socket.getOutputStream(), true);
-        this.input = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+    public int getId() {
+        return id;
     }
 
+    /**
+     * Protocol form of the ID, e.g. "P12"
+     */
     public String getPlayerId() {
-        return playerId;
+        return formatId(id);
+    }
+
+    public static String formatId(int id) {
+        return "P" + id;
+    }
+
+    /**
+     * ID from its protocol form, or -1 if the text is not a valid player ID
+     */
+    public static int parseId(String playerId) {
+        if (playerId.length() < 2 || playerId.charAt(0) != 'P') {
+            return -1;
+        }
+        return CommandDecoder.parseInt(playerId, 1, playerId.length());
     }
 
     public String getPlayerName() {
         return playerName;
     }
 
-    public Socket getSocket() {
-        return socket;
+    public Connection getConnection() {
+        return connection;
     }
 
-    public PrintWriter getOutputStream() {
-        return output;
+    public OutboundQueue getOutboundQueue() {
+        return outbound;
     }
 
-    public BufferedReader getInputStream() {
-        return input;
+    /**
+     * True for the server's computer opponent
+     */
+    public boolean isBot() {
+        return connection instanceof BotConnection;
     }
 
     public boolean isHost() {
@@ -75,55 +112,194 @@ public class Player {
     }
 
     public LocalDateTime getConnectedAt() {
-        return connectedAt;
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(connectedAtMillis), ZoneId.systemDefault());
+    }
+
+    public long getConnectedAtMillis() {
+        return connectedAtMillis;
+    }
+
+    /**
+     * Buffer bytes held for this player by its outbound queue and transport
+     */
+    public long getRetainedBytes() {
+        return outbound.getRetainedBytes() + (connection != null ? connection.getRetainedBytes() : 0);
+    }
+
+    /**
+     * Record inbound traffic, pushing out the idle deadline
+     */
+    public void touch() {
+        lastActivityNanos = System.nanoTime();
+    }
+
+    public long getLastActivityNanos() {
+        return lastActivityNanos;
+    }
+
+    public long getPingSentNanos() {
+        return pingSentNanos;
+    }
+
+    public void setPingSentNanos(long pingSentNanos) {
+        this.pingSentNanos = pingSentNanos;
+    }
+
+    public TimingWheel.Timeout getIdleTimeout() {
+        return idleTimeout;
     }
 
-    public String getCurrentSessionId() {
+    public void setIdleTimeout(TimingWheel.Timeout idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    long[] getRateBuckets() {
+        return rateBuckets;
+    }
+
+    void setRateBuckets(long[] rateBuckets) {
+        this.rateBuckets = rateBuckets;
+    }
+
+    /**
+     * Session this player is seated in, or NO_SESSION
+     */
+    public int getCurrentSessionId() {
         return currentSessionId;
     }
 
-    public void setCurrentSessionId(String sessionId) {
+    public void setCurrentSessionId(int sessionId) {
         this.currentSessionId = sessionId;
     }
 
+    public boolean isInSession() {
+        return currentSessionId != NO_SESSION;
+    }
+
+    /**
+     * Session this player is watching as a spectator, or NO_SESSION
+     */
+    public int getSpectatingSessionId() {
+        return spectatingSessionId;
+    }
+
+    public void setSpectatingSessionId(int sessionId) {
+        this.spectatingSessionId = sessionId;
+    }
+
+    /**
+     * Ticket while this player is in the matchmaking queue, or null
+     */
+    public Matchmaker.Ticket getMatchTicket() {
+        return matchTicket;
+    }
+
+    public void setMatchTicket(Matchmaker.Ticket ticket) {
+        this.matchTicket = ticket;
+    }
+
     /**
-     * Send a message to this player
+     * Called once if this player stops reading and the game policy is to disconnect
+     */
+    public void setSlowConsumerHandler(Consumer<Player> handler) {
+        this.slowConsumerHandler = handler;
+    }
+
+    /**
+     * Queue a message for this player; never blocks on the socket
      */
     public void sendMessage(String message) {
-        if (output != null) {
-            output.println(message);
-            logger.debug("Sent to {}: {}", playerId, message);
+        if (!isActive) {
+            return;
+        }
+
+        switch (outbound.offer(message)) {
+            case QUEUED:
+                logger.debug("Sent to P{}: {}", id, message);
+                break;
+
+            case DISCONNECT:
+                logger.warn("Player P{} is not reading, disconnecting", id);
+                if (slowConsumerHandler != null) {
+                    slowConsumerHandler.accept(this);
+                }
+                break;
+
+            default:
+                logger.debug("Outbound budget exhausted for P{}, dropped: {}", id, message);
         }
     }
 
     /**
-     * Close connection and clean up resources
+     * Queue a frame shared with other recipients; same budget and policy as sendMessage
      */
-    public void disconnect() {
-        try {
-            isActive = false;
+    public void sendFrame(Frame frame) {
+        if (!isActive) {
+            return;
+        }
 
-            if (input != null) {
-                input.close();
-            }
+        switch (outbound.offerFrame(frame)) {
+            case QUEUED:
+                logger.debug("Sent to P{}: {}", id, frame);
+                break;
 
-            if (output != null) {
-                output.close();
-            }
+            case DISCONNECT:
+                logger.warn("Player P{} is not reading, disconnecting", id);
+                if (slowConsumerHandler != null) {
+                    slowConsumerHandler.accept(this);
+                }
+                break;
 
-            if (socket != null && !socket.isClosed()) {
-                socket.close();
-            }
+            default:
+                logger.debug("Outbound budget exhausted for P{}, dropped: {}", id, frame);
+        }
+    }
+
+    /**
+     * Lobby version this player's session list is known to reflect
+     */
+    public long getLobbyVersion() {
+        return lobbyVersion;
+    }
+
+    public void setLobbyVersion(long lobbyVersion) {
+        this.lobbyVersion = lobbyVersion;
+    }
+
+    /**
+     * Queue a lobby update: the delta if this player is up to date, otherwise
+     * the full snapshot. A dropped update leaves the version stale so the next
+     * one resynchronizes with a snapshot.
+     */
+    public void sendLobbyUpdate(LobbyIndex.Update update) {
+        if (!isActive) {
+            return;
+        }
+
+        String snapshot = update.getSnapshot().getUpdateMessage();
+        String message = lobbyVersion == update.getPreviousVersion() ? update.getDelta() : snapshot;
 
-            logger.info("Player {} disconnected", playerId);
-        } catch (IOException e) {
-            logger.error("Error disconnecting player {}: {}", playerId, e.getMessage());
+        if (outbound.offerLobby(message, snapshot) != OutboundQueue.Result.DROPPED) {
+            lobbyVersion = update.getVersion();
         }
     }
 
+    /**
+     * Close connection and clean up resources
+     */
+    public void disconnect() {
+        isActive = false;
+
+        if (connection != null) {
+            connection.close();
+        }
+
+        logger.info("Player P{} disconnected", id);
+    }
+
     @Override
     public String toString() {
-        return String.format("Player{id=%s, name=%s, host=%s, active=%s}",
-                playerId, playerName, isHost, isActive);
+        return String.format("Player{id=P%d, name=%s, host=%s, active=%s}",
+                id, playerName, isHost, isActive);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,96 @@
+package com.eric.GobangGameServer;
+
+import java.util.Arrays;
+
+/**
+ * Per-connection token-bucket limits on client commands: one bucket shared by
+ * every command, and separate ones for CHAT and LIST_SESSIONS, which fan out
+ * to other players or build large replies. A rate of 0 disables a bucket.
+ *
+ * A bucket is stored as a single long per player: the time at which it
+ * would be full again (the generic cell rate algorithm). Each accepted
+ * command pushes that time forward by one emission interval. A command is
+ * refused when the time is further ahead than the burst allows.
+ */
+public class RateLimits {
+    private static final int NONE = -1;
+    // Bucket state before the first command; the bucket is full
+    private static final long FULL = 0L;
+
+    private final int shared;
+    // Bucket for each opcode beyond the shared one, or NONE
+    private final int[] bucketOf = new int[Opcode.COUNT];
+    private final long[] intervalNanos = new long[3];
+    private final long[] toleranceNanos = new long[3];
+    private final int bucketCount;
+
+    /**
+     * @param commandsPerSecond sustained rate of all commands, 0 for no limit
+     * @param chatPerSecond     sustained CHAT rate, 0 for no limit
+     * @param listPerSecond     sustained LIST_SESSIONS rate, 0 for no limit
+     */
+    public RateLimits(int commandsPerSecond, int commandsBurst, int chatPerSecond, int chatBurst,
+                      int listPerSecond, int listBurst) {
+        Arrays.fill(bucketOf, NONE);
+        int count = 0;
+        shared = commandsPerSecond > 0 ? define(count++, commandsPerSecond, commandsBurst) : NONE;
+        if (chatPerSecond > 0) {
+            bucketOf[Opcode.CHAT.ordinal()] = define(count++, chatPerSecond, chatBurst);
+        }
+        if (listPerSecond > 0) {
+            bucketOf[Opcode.LIST_SESSIONS.ordinal()] = define(count++, listPerSecond, listBurst);
+        }
+        bucketCount = count;
+    }
+
+    public static RateLimits fromConfig(ServerConfig config) {
+        return new RateLimits(config.getCommandRateLimit(), config.getCommandRateBurst(),
+                config.getChatRateLimit(), config.getChatRateBurst(),
+                config.getListSessionsRateLimit(), config.getListSessionsRateBurst());
+    }
+
+    private int define(int bucket, int perSecond, int burst) {
+        intervalNanos[bucket] = 1_000_000_000L / perSecond;
+        toleranceNanos[bucket] = intervalNanos[bucket] * (Math.max(1, burst) - 1);
+        return bucket;
+    }
+
+    /**
+     * Take a token for the command from the player's buckets, or return false
+     * if one of them is empty. Called only from the thread reading the
+     * player's connection.
+     */
+    public boolean tryAcquire(Player player, Opcode opcode) {
+        int own = bucketOf[opcode.ordinal()];
+        if (shared == NONE && own == NONE) {
+            return true;
+        }
+
+        long[] buckets = player.getRateBuckets();
+        if (buckets == null) {
+            buckets = new long[bucketCount];
+            player.setRateBuckets(buckets);
+        }
+
+        long now = System.nanoTime();
+        if ((shared != NONE && !hasToken(buckets, shared, now)) || (own != NONE && !hasToken(buckets, own, now))) {
+            return false;
+        }
+        if (shared != NONE) {
+            take(buckets, shared, now);
+        }
+        if (own != NONE) {
+            take(buckets, own, now);
+        }
+        return true;
+    }
+
+    private boolean hasToken(long[] buckets, int bucket, long now) {
+        return buckets[bucket] == FULL || buckets[bucket] - now <= toleranceNanos[bucket];
+    }
+
+    private void take(long[] buckets, int bucket, long now) {
+        long fullAt = buckets[bucket];
+        buckets[bucket] = (fullAt == FULL || fullAt - now < 0 ? now : fullAt) + intervalNanos[bucket];
+    }
+}
@@ -0,0 +1,43 @@
+package com.eric.GobangGameServer;
+
+/**
+ * Winning and forbidden-move rules a session is played under
+ */
+public enum RuleVariant {
+    /** Five or more in a row wins */
+    FREESTYLE("freestyle"),
+    /** Exactly five wins; an overline is an ordinary move */
+    STANDARD("standard"),
+    /**
+     * Black may not make an overline, a double four or a double three, and
+     * wins only with exactly five; white wins with five or more
+     */
+    RENJU("renju");
+
+    static final RuleVariant[] VALUES = values();
+
+    private final String name;
+
+    RuleVariant(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Name used in the protocol and configuration
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The variant with the given name, ignoring case, or null if there is none
+     */
+    public static RuleVariant fromName(String name) {
+        for (RuleVariant variant : VALUES) {
+            if (variant.name.equalsIgnoreCase(name)) {
+                return variant;
+            }
+        }
+        return null;
+    }
+}
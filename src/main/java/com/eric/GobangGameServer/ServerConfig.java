@@ -5,6 +5,9 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Properties;
 
 /**
@@ -15,20 +18,71 @@ public class ServerConfig {
     private final Properties properties;
 
     public ServerConfig() {
+        this(true);
+    }
+
+    /**
+     * Create a configuration, optionally skipping the config file (defaults only)
+     */
+    public ServerConfig(boolean loadFile) {
         properties = new Properties();
         loadDefaultConfig();
-        loadConfigFile();
+        if (loadFile) {
+            loadConfigFile();
+        }
     }
 
     private void loadDefaultConfig() {
         properties.setProperty("server.port", "12345");
         properties.setProperty("server.max_players", "100");
         properties.setProperty("server.max_sessions", "50");
+        properties.setProperty("server.max_connections_per_ip", "0"); // 0 = no cap
+        properties.setProperty("server.rate_limit.commands_per_second", "0"); // all commands, 0 = unlimited
+        properties.setProperty("server.rate_limit.commands_burst", "100");
+        properties.setProperty("server.rate_limit.chat_per_second", "5");
+        properties.setProperty("server.rate_limit.chat_burst", "10");
+        properties.setProperty("server.rate_limit.list_sessions_per_second", "2");
+        properties.setProperty("server.rate_limit.list_sessions_burst", "5");
         properties.setProperty("server.timeout", "300"); // seconds
         properties.setProperty("server.heartbeat_interval", "30"); // seconds
         properties.setProperty("log.level", "INFO");
         properties.setProperty("log.file", "server.log");
         properties.setProperty("server.bind_address", "0.0.0.0"); // Bind to all interfaces
+        properties.setProperty("server.transport", "blocking"); // blocking or nio
+        properties.setProperty("server.io_threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())); // NIO event loops
+        properties.setProperty("server.session_workers",
+                String.valueOf(Runtime.getRuntime().availableProcessors())); // session worker pool, 0 = inline
+        properties.setProperty("server.session_drain_batch", "32"); // events per session per turn
+        properties.setProperty("server.buffer_pool.max_idle_bytes", "16777216"); // released NIO buffers kept for reuse
+        properties.setProperty("server.buffer_pool.leak_sampling", "64"); // watch 1 lease in N for leaks, 0 = off
+        properties.setProperty("server.lean_connections", "false"); // idle connections hold no write buffers
+        properties.setProperty("server.thread_mode", "platform"); // platform or virtual (Java 21+)
+        properties.setProperty("server.outbound_queue_size", "256"); // messages per player
+        properties.setProperty("server.lobby_update_window_ms", "100"); // lobby changes coalesced per window
+        properties.setProperty("server.outbound_max_bytes", "65536"); // unsent bytes per player
+        properties.setProperty("server.slow_consumer.lobby_policy", "coalesce"); // drop or coalesce
+        properties.setProperty("server.slow_consumer.game_policy", "disconnect"); // drop or disconnect
+        properties.setProperty("server.metrics_port", "0"); // Prometheus /metrics endpoint, 0 = disabled
+        properties.setProperty("server.metrics_bind_address", "127.0.0.1");
+        properties.setProperty("server.journal_dir", ""); // move journal for crash recovery, empty = disabled
+        properties.setProperty("server.journal_segment_mb", "16");
+        properties.setProperty("server.journal_sync_ms", "10"); // group commit interval
+        properties.setProperty("server.cluster.node_id", ""); // empty = standalone
+        properties.setProperty("server.cluster.port", "12445"); // inter-node links
+        properties.setProperty("server.cluster.peers", ""); // id=host:port,...
+        properties.setProperty("server.cluster.virtual_nodes", "128"); // ring points per node
+        properties.setProperty("server.ai.threads",
+                String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / 2))); // shared by all bot games
+        properties.setProperty("server.ai.search_threads", "2"); // lazy-SMP threads per move when the pool is idle
+        properties.setProperty("server.ai.move_time_ms", "500");
+        properties.setProperty("server.ai.table_bits", "20"); // transposition table slots = 2^bits
+        properties.setProperty("server.default_rules", "freestyle"); // freestyle, standard or renju
+        properties.setProperty("server.matchmaking.tick_ms", "200");
+        properties.setProperty("server.matchmaking.bucket_width", "25");
+        properties.setProperty("server.matchmaking.initial_window", "50"); // rating points
+        properties.setProperty("server.matchmaking.window_growth", "25"); // rating points per second waited
+        properties.setProperty("server.matchmaking.max_window", "400");
     }
 
     private void loadConfigFile() {
@@ -67,6 +121,46 @@ public class ServerConfig {
         properties.setProperty("server.max_players", String.valueOf(maxPlayers));
     }
 
+    public int getMaxConnectionsPerIp() {
+        return Integer.parseInt(properties.getProperty("server.max_connections_per_ip"));
+    }
+
+    public void setMaxConnectionsPerIp(int maxConnections) {
+        properties.setProperty("server.max_connections_per_ip", String.valueOf(maxConnections));
+    }
+
+    public int getCommandRateLimit() {
+        return Integer.parseInt(properties.getProperty("server.rate_limit.commands_per_second"));
+    }
+
+    public int getCommandRateBurst() {
+        return Integer.parseInt(properties.getProperty("server.rate_limit.commands_burst"));
+    }
+
+    public int getChatRateLimit() {
+        return Integer.parseInt(properties.getProperty("server.rate_limit.chat_per_second"));
+    }
+
+    public void setChatRateLimit(int perSecond) {
+        properties.setProperty("server.rate_limit.chat_per_second", String.valueOf(perSecond));
+    }
+
+    public int getChatRateBurst() {
+        return Integer.parseInt(properties.getProperty("server.rate_limit.chat_burst"));
+    }
+
+    public int getListSessionsRateLimit() {
+        return Integer.parseInt(properties.getProperty("server.rate_limit.list_sessions_per_second"));
+    }
+
+    public void setListSessionsRateLimit(int perSecond) {
+        properties.setProperty("server.rate_limit.list_sessions_per_second", String.valueOf(perSecond));
+    }
+
+    public int getListSessionsRateBurst() {
+        return Integer.parseInt(properties.getProperty("server.rate_limit.list_sessions_burst"));
+    }
+
     public int getMaxSessions() {
         return Integer.parseInt(properties.getProperty("server.max_sessions"));
     }
@@ -91,6 +185,203 @@ public class ServerConfig {
         return properties.getProperty("server.bind_address");
     }
 
+    public String getTransport() {
+        return properties.getProperty("server.transport");
+    }
+
+    public void setTransport(String transport) {
+        properties.setProperty("server.transport", transport);
+    }
+
+    public boolean isNioTransport() {
+        return "nio".equalsIgnoreCase(getTransport());
+    }
+
+    public String getThreadMode() {
+        return properties.getProperty("server.thread_mode");
+    }
+
+    public boolean isVirtualThreadMode() {
+        return "virtual".equalsIgnoreCase(getThreadMode());
+    }
+
+    public int getOutboundQueueSize() {
+        return Integer.parseInt(properties.getProperty("server.outbound_queue_size"));
+    }
+
+    public int getLobbyUpdateWindowMs() {
+        return Integer.parseInt(properties.getProperty("server.lobby_update_window_ms"));
+    }
+
+    public int getOutboundMaxBytes() {
+        return Integer.parseInt(properties.getProperty("server.outbound_max_bytes"));
+    }
+
+    public String getLobbySlowConsumerPolicy() {
+        return properties.getProperty("server.slow_consumer.lobby_policy");
+    }
+
+    public String getGameSlowConsumerPolicy() {
+        return properties.getProperty("server.slow_consumer.game_policy");
+    }
+
+    public int getMetricsPort() {
+        return Integer.parseInt(properties.getProperty("server.metrics_port"));
+    }
+
+    public void setMetricsPort(int port) {
+        properties.setProperty("server.metrics_port", String.valueOf(port));
+    }
+
+    public String getMetricsBindAddress() {
+        return properties.getProperty("server.metrics_bind_address");
+    }
+
+    public String getJournalDir() {
+        return properties.getProperty("server.journal_dir");
+    }
+
+    public void setJournalDir(String directory) {
+        properties.setProperty("server.journal_dir", directory);
+    }
+
+    public int getJournalSegmentBytes() {
+        return Integer.parseInt(properties.getProperty("server.journal_segment_mb")) * 1024 * 1024;
+    }
+
+    public int getJournalSyncMs() {
+        return Integer.parseInt(properties.getProperty("server.journal_sync_ms"));
+    }
+
+    public String getClusterNodeId() {
+        return properties.getProperty("server.cluster.node_id");
+    }
+
+    public void setClusterNodeId(String nodeId) {
+        properties.setProperty("server.cluster.node_id", nodeId);
+    }
+
+    public int getClusterPort() {
+        return Integer.parseInt(properties.getProperty("server.cluster.port"));
+    }
+
+    public void setClusterPort(int port) {
+        properties.setProperty("server.cluster.port", String.valueOf(port));
+    }
+
+    /**
+     * Other cluster members by node ID, parsed from "id=host:port,..."
+     */
+    public Map<String, InetSocketAddress> getClusterPeers() {
+        Map<String, InetSocketAddress> peers = new LinkedHashMap<>();
+        for (String entry : properties.getProperty("server.cluster.peers").split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) {
+                continue;
+            }
+            int equals = entry.indexOf('=');
+            int colon = entry.lastIndexOf(':');
+            if (equals <= 0 || colon < equals) {
+                throw new IllegalArgumentException("Cluster peer must be id=host:port: " + entry);
+            }
+            peers.put(entry.substring(0, equals), InetSocketAddress.createUnresolved(
+                    entry.substring(equals + 1, colon), Integer.parseInt(entry.substring(colon + 1))));
+        }
+        return peers;
+    }
+
+    public void setClusterPeers(String peers) {
+        properties.setProperty("server.cluster.peers", peers);
+    }
+
+    public int getClusterVirtualNodes() {
+        return Integer.parseInt(properties.getProperty("server.cluster.virtual_nodes"));
+    }
+
+    public int getAiThreads() {
+        return Integer.parseInt(properties.getProperty("server.ai.threads"));
+    }
+
+    public int getAiSearchThreads() {
+        return Integer.parseInt(properties.getProperty("server.ai.search_threads"));
+    }
+
+    public int getAiMoveTimeMs() {
+        return Integer.parseInt(properties.getProperty("server.ai.move_time_ms"));
+    }
+
+    public int getAiTableBits() {
+        return Integer.parseInt(properties.getProperty("server.ai.table_bits"));
+    }
+
+    /**
+     * Rules for sessions created without naming a variant, matched games and games against the computer
+     */
+    public RuleVariant getDefaultRules() {
+        String name = properties.getProperty("server.default_rules");
+        RuleVariant rules = RuleVariant.fromName(name);
+        if (rules == null) {
+            throw new IllegalArgumentException("Unknown rule variant: " + name);
+        }
+        return rules;
+    }
+
+    public void setDefaultRules(RuleVariant rules) {
+        properties.setProperty("server.default_rules", rules.getName());
+    }
+
+    public int getMatchmakingTickMs() {
+        return Integer.parseInt(properties.getProperty("server.matchmaking.tick_ms"));
+    }
+
+    public int getMatchmakingBucketWidth() {
+        return Integer.parseInt(properties.getProperty("server.matchmaking.bucket_width"));
+    }
+
+    public int getMatchmakingInitialWindow() {
+        return Integer.parseInt(properties.getProperty("server.matchmaking.initial_window"));
+    }
+
+    public int getMatchmakingWindowGrowth() {
+        return Integer.parseInt(properties.getProperty("server.matchmaking.window_growth"));
+    }
+
+    public int getMatchmakingMaxWindow() {
+        return Integer.parseInt(properties.getProperty("server.matchmaking.max_window"));
+    }
+
+    public int getSessionWorkers() {
+        return Integer.parseInt(properties.getProperty("server.session_workers"));
+    }
+
+    public void setSessionWorkers(int workers) {
+        properties.setProperty("server.session_workers", String.valueOf(workers));
+    }
+
+    public int getSessionDrainBatch() {
+        return Integer.parseInt(properties.getProperty("server.session_drain_batch"));
+    }
+
+    public long getBufferPoolMaxIdleBytes() {
+        return Long.parseLong(properties.getProperty("server.buffer_pool.max_idle_bytes"));
+    }
+
+    public int getBufferPoolLeakSampling() {
+        return Integer.parseInt(properties.getProperty("server.buffer_pool.leak_sampling"));
+    }
+
+    public boolean isLeanConnections() {
+        return Boolean.parseBoolean(properties.getProperty("server.lean_connections"));
+    }
+
+    public void setLeanConnections(boolean lean) {
+        properties.setProperty("server.lean_connections", String.valueOf(lean));
+    }
+
+    public int getIoThreads() {
+        return Integer.parseInt(properties.getProperty("server.io_threads"));
+    }
+
     public Properties getProperties() {
         return properties;
     }
@@ -0,0 +1,71 @@
+package com.eric.GobangGameServer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Event queue of one session: any thread may post, one drainer at a time
+ * takes. Posting swaps the tail and links the node, with no lock and no
+ * retry loop. A count of posted but unfinished events decides who schedules
+ * the drain: the post that raises it from zero. The drainer stops when its
+ * finish brings the count back to zero, so at most one drain of a mailbox
+ * is ever running.
+ */
+final class SessionMailbox {
+
+    private static final class Node {
+        Runnable task;
+        volatile Node next;
+
+        Node(Runnable task) {
+            this.task = task;
+        }
+    }
+
+    private final AtomicReference<Node> tail;
+    private final AtomicInteger pending = new AtomicInteger();
+    // Owned by the drainer; always the last node taken, or the initial stub
+    private Node head;
+
+    SessionMailbox() {
+        head = new Node(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Queue an event; true if the mailbox was idle and the caller must schedule a drain
+     */
+    boolean post(Runnable task) {
+        Node node = new Node(task);
+        tail.getAndSet(node).next = node;
+        // Counted only once linked, so a drainer that sees the count can reach the node
+        return pending.getAndIncrement() == 0;
+    }
+
+    /**
+     * Next event, for the drainer only. Returns null only while a post has
+     * swapped the tail but not yet linked its node.
+     */
+    Runnable poll() {
+        Node next = head.next;
+        if (next == null) {
+            return null;
+        }
+        Runnable task = next.task;
+        next.task = null;
+        head = next;
+        return task;
+    }
+
+    /**
+     * Record a drained event as finished; false once none are left, which
+     * ends the drain
+     */
+    boolean finish() {
+        return pending.decrementAndGet() > 0;
+    }
+
+    int size() {
+        return pending.get();
+    }
+}
@@ -0,0 +1,145 @@
+package com.eric.GobangGameServer;
+
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs session events as actors: each session has its own mailbox, and a
+ * shared pool of workers drains whichever mailboxes have events. A mailbox
+ * is drained by one worker at a time, so a session's events run in the
+ * order they were posted and its state needs no locks, while a busy session
+ * no longer holds up unrelated sessions that happen to share a thread.
+ * A drain runs at most a fixed batch of events before putting the mailbox
+ * back at the end of the queue, so one flooded session cannot starve the
+ * rest.
+ */
+public class SessionWorkers {
+    private static final Logger logger = LoggerFactory.getLogger(SessionWorkers.class);
+
+    private final int workerCount;
+    private final int drainBatch;
+    private final LongAdder tasksPending = new LongAdder();
+    private final LongAdder tasksRun = new LongAdder();
+    private final LongAdder drainsYielded = new LongAdder();
+    private volatile ThreadPoolExecutor pool;
+
+    /**
+     * @param workers    pool size; 0 runs every event inline on the caller
+     * @param drainBatch events run per drain before the mailbox yields its worker
+     */
+    public SessionWorkers(int workers, int drainBatch) {
+        this.workerCount = Math.max(0, workers);
+        this.drainBatch = Math.max(1, drainBatch);
+    }
+
+    public void start() {
+        if (workerCount == 0) {
+            return;
+        }
+        // One shared lock-free FIFO, so a yielding mailbox goes behind every one already waiting
+        AtomicInteger threads = new AtomicInteger();
+        pool = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new LinkedTransferQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "session-worker-" + threads.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.prestartAllCoreThreads();
+        logger.info("Session events drained by {} workers, {} per turn", workerCount, drainBatch);
+    }
+
+    public void stop() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Wait for queued drains to finish after stop()
+     */
+    public void awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        if (pool != null) {
+            pool.awaitTermination(timeout, unit);
+        }
+    }
+
+    /**
+     * Post an event to the session's mailbox
+     */
+    public void execute(GameSession session, Runnable task) {
+        if (pool == null) {
+            runTask(task);
+            return;
+        }
+
+        SessionMailbox mailbox = session.getMailbox();
+        tasksPending.increment();
+        if (mailbox.post(task)) {
+            schedule(mailbox);
+        }
+    }
+
+    private void schedule(SessionMailbox mailbox) {
+        try {
+            pool.execute(() -> drain(mailbox));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the session's remaining events are dropped with it
+            logger.debug("Session events dropped at shutdown");
+        }
+    }
+
+    private void drain(SessionMailbox mailbox) {
+        for (int run = 0; run < drainBatch; run++) {
+            Runnable task;
+            while ((task = mailbox.poll()) == null) {
+                // A post is between claiming its place and linking it
+                Thread.onSpinWait();
+            }
+            tasksPending.decrement();
+            runTask(task);
+            if (!mailbox.finish()) {
+                return;
+            }
+        }
+
+        drainsYielded.increment();
+        schedule(mailbox);
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Events posted but not yet run, across all sessions
+     */
+    public long getPendingTasks() {
+        return tasksPending.sum();
+    }
+
+    public long getTasksRun() {
+        return tasksRun.sum();
+    }
+
+    /**
+     * Drains that hit the batch limit and gave their worker to other sessions
+     */
+    public long getDrainsYielded() {
+        return drainsYielded.sum();
+    }
+
+    private void runTask(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            logger.error("Session task failed: {}", e.getMessage(), e);
+        }
+        tasksRun.increment();
+    }
+}
@@ -0,0 +1,216 @@
+package com.eric.GobangGameServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Blocking connection backed by a plain socket, one thread per client.
+ * Safe to run on virtual threads: no monitors are held around socket I/O here,
+ * and on Java 21+ PrintWriter/InputStreamReader guard their buffers with internal
+ * j.u.c locks rather than synchronized, so a blocked read or write unmounts the
+ * virtual thread instead of pinning its carrier.
+ *
+ * In lean mode there is no PrintWriter: each batch is encoded into a
+ * short-lived byte array and written straight to the socket, and the line
+ * reader starts small. The reader's decoder buffer and the thread remain,
+ * so lean blocking connections are still far heavier than NIO ones.
+ *
+ * The handshake line is read from the raw stream before any reader exists,
+ * so a client that opts into the binary protocol can follow it with frames
+ * that no char decoder has read ahead into.
+ */
+public class SocketConnection implements Connection {
+    private static final Logger logger = LoggerFactory.getLogger(SocketConnection.class);
+    private static final int LEAN_LINE_CAPACITY = 256;
+    private static final int MAX_HANDSHAKE_LENGTH = 8192;
+    // Fixed buffers inside the JDK stream wrappers: the reader's byte decoder
+    // buffer, and the PrintWriter's BufferedWriter chars plus encoder bytes
+    private static final int DECODER_BYTES = 8192;
+    private static final int WRITER_BYTES = 8192 * Character.BYTES + 8192;
+
+    private final Socket socket;
+    private final OutputStream rawOutput;
+    // Null in lean mode
+    private final PrintWriter output;
+    private final boolean lean;
+    private final Executor writeExecutor;
+    private InputStream rawInput;
+    // Created after the handshake: a line reader for text, a frame buffer for binary
+    private LineReader input;
+    private byte[] frameBuffer;
+    private volatile boolean binary;
+
+    public SocketConnection(Socket socket, Executor writeExecutor) throws IOException {
+        this(socket, writeExecutor, false);
+    }
+
+    public SocketConnection(Socket socket, Executor writeExecutor, boolean lean) throws IOException {
+        this.socket = socket;
+        this.writeExecutor = writeExecutor;
+        // Flushes are already batched per player; Nagle would only add delayed-ACK stalls
+        socket.setTcpNoDelay(true);
+        this.rawOutput = socket.getOutputStream();
+        this.rawInput = socket.getInputStream();
+        this.lean = lean;
+        this.output = lean ? null : new PrintWriter(rawOutput, false, StandardCharsets.UTF_8);
+    }
+
+    public Socket getSocket() {
+        return socket;
+    }
+
+    /**
+     * Read the first line (the PLAYER_INFO handshake) as UTF-8, or null if
+     * the client disconnects first. Bytes that arrived behind it are kept
+     * for the reader that follows.
+     */
+    public String readHandshake() throws IOException {
+        byte[] buffer = new byte[256];
+        int filled = 0;
+        while (true) {
+            for (int i = 0; i < filled; i++) {
+                if (buffer[i] == '\n') {
+                    if (i + 1 < filled) {
+                        rawInput = new SequenceInputStream(
+                                new ByteArrayInputStream(buffer, i + 1, filled - i - 1), rawInput);
+                    }
+                    int end = i > 0 && buffer[i - 1] == '\r' ? i - 1 : i;
+                    return new String(buffer, 0, end, StandardCharsets.UTF_8);
+                }
+            }
+
+            if (filled == buffer.length) {
+                if (buffer.length == MAX_HANDSHAKE_LENGTH) {
+                    throw new IOException("Handshake exceeds " + MAX_HANDSHAKE_LENGTH + " bytes");
+                }
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+
+            int read = rawInput.read(buffer, filled, buffer.length - filled);
+            if (read < 0) {
+                return filled > 0 ? new String(buffer, 0, filled, StandardCharsets.UTF_8) : null;
+            }
+            filled += read;
+        }
+    }
+
+    /**
+     * Line reader for text clients, created on first use after the handshake
+     */
+    public LineReader getReader() {
+        if (input == null) {
+            input = lean
+                    ? new LineReader(new InputStreamReader(rawInput, StandardCharsets.UTF_8), LEAN_LINE_CAPACITY)
+                    : new LineReader(new InputStreamReader(rawInput, StandardCharsets.UTF_8));
+        }
+        return input;
+    }
+
+    /**
+     * Read the next binary frame into the command; false at end of stream
+     */
+    public boolean readCommand(Command command) throws IOException {
+        if (frameBuffer == null) {
+            frameBuffer = new byte[BinaryProtocol.MAX_FRAME_LENGTH];
+        }
+        return BinaryProtocol.read(rawInput, frameBuffer, command);
+    }
+
+    @Override
+    public boolean enableBinary() {
+        binary = true;
+        return true;
+    }
+
+    @Override
+    public boolean isBinary() {
+        return binary;
+    }
+
+    @Override
+    public void write(CharSequence lines) {
+        if (binary) {
+            ByteBuffer frames = ByteBuffer.allocate(BinaryProtocol.encodedLength(lines));
+            BinaryProtocol.encode(lines, frames);
+            writeBytes(frames.array(), 0, frames.position());
+            return;
+        }
+
+        if (output == null) {
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(lines));
+            writeBytes(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            return;
+        }
+
+        // Buffered writer, so a whole batch goes out in one flush
+        output.append(lines);
+        output.flush();
+    }
+
+    private void writeBytes(byte[] bytes, int offset, int length) {
+        try {
+            rawOutput.write(bytes, offset, length);
+        } catch (IOException e) {
+            logger.debug("Write to {} failed: {}", getRemoteAddress(), e.getMessage());
+            close();
+        }
+    }
+
+    @Override
+    public void writeFrame(Frame frame) {
+        // Text written before the frame must reach the socket first
+        if (output != null) {
+            output.flush();
+        }
+        try {
+            frame.writeTo(rawOutput, binary);
+        } catch (IOException e) {
+            logger.debug("Write to {} failed: {}", getRemoteAddress(), e.getMessage());
+            close();
+        }
+    }
+
+    @Override
+    public int getRetainedBytes() {
+        int reader = binary ? (frameBuffer != null ? frameBuffer.length : 0)
+                : (input != null ? input.getRetainedBytes() + DECODER_BYTES : 0);
+        return reader + (output != null ? WRITER_BYTES : 0);
+    }
+
+    @Override
+    public Executor getWriteExecutor() {
+        return writeExecutor;
+    }
+
+    @Override
+    public void close() {
+        // Closing the socket alone releases both streams. Closing the reader or
+        // writer first would wait for their locks, which a thread blocked on a
+        // stalled peer may hold.
+        try {
+            if (!socket.isClosed()) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            logger.error("Error closing socket {}: {}", getRemoteAddress(), e.getMessage());
+        }
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return socket.getInetAddress() + ":" + socket.getPort();
+    }
+}
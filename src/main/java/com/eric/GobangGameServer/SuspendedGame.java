@@ -0,0 +1,114 @@
+package com.eric.GobangGameServer;
+
+/**
+ * A game recovered from the move journal, holding seats for its two players
+ * by name until both have reconnected or the game expires
+ */
+public class SuspendedGame {
+
+    /**
+     * Outcome of a player reconnecting
+     */
+    public enum Seat {
+        NOT_SEATED,
+        WAITING,
+        READY
+    }
+
+    private final int sessionId;
+    private final MoveJournal.RecoveredGame game;
+    private Player host;
+    private Player guest;
+    private boolean closed;
+    private TimingWheel.Timeout expiry;
+
+    public SuspendedGame(int sessionId, MoveJournal.RecoveredGame game) {
+        this.sessionId = sessionId;
+        this.game = game;
+    }
+
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    public MoveJournal.RecoveredGame getGame() {
+        return game;
+    }
+
+    /**
+     * Seat a reconnecting player whose name matches a free seat
+     */
+    public synchronized Seat attach(Player player) {
+        if (closed) {
+            return Seat.NOT_SEATED;
+        }
+
+        String name = player.getPlayerName();
+        if (host == null && name.equals(game.getHostName())) {
+            host = player;
+        } else if (guest == null && name.equals(game.getGuestName())) {
+            guest = player;
+        } else {
+            return Seat.NOT_SEATED;
+        }
+
+        if (host != null && guest != null) {
+            closed = true;
+            return Seat.READY;
+        }
+        return Seat.WAITING;
+    }
+
+    /**
+     * Free the seat of a player who left again before the game resumed
+     */
+    public synchronized void detach(Player player) {
+        if (host == player) {
+            host = null;
+        } else if (guest == player) {
+            guest = null;
+        }
+    }
+
+    /**
+     * Give up on the game; false if it already resumed
+     */
+    public synchronized boolean expire() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        return true;
+    }
+
+    /**
+     * The one player seated so far, or null
+     */
+    public synchronized Player getWaitingPlayer() {
+        return host != null ? host : guest;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized Player getHost() {
+        return host;
+    }
+
+    public synchronized Player getGuest() {
+        return guest;
+    }
+
+    public String getOpponentName(Player player) {
+        return player.getPlayerName().equals(game.getHostName()) ? game.getGuestName() : game.getHostName();
+    }
+
+    TimingWheel.Timeout getExpiry() {
+        return expiry;
+    }
+
+    void setExpiry(TimingWheel.Timeout expiry) {
+        this.expiry = expiry;
+    }
+}
@@ -0,0 +1,77 @@
+package com.eric.GobangGameServer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free transposition table shared by every search thread.
+ * Each slot holds a packed entry and its Zobrist key XORed with that entry;
+ * a torn write from two racing threads fails the XOR check on probe and
+ * reads as a miss, so no locking is needed (Hyatt's lockless hashing).
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    private static final long NO_ENTRY = 0L;
+
+    private final AtomicLongArray keys;
+    private final AtomicLongArray entries;
+    private final int mask;
+
+    /**
+     * @param bits log2 of the number of slots
+     */
+    public TranspositionTable(int bits) {
+        int size = 1 << bits;
+        this.keys = new AtomicLongArray(size);
+        this.entries = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Packed entry for the position, or 0 if it is not in the table
+     */
+    public long probe(long hash) {
+        int slot = (int) hash & mask;
+        long entry = entries.getOpaque(slot);
+        if (entry != NO_ENTRY && (keys.getOpaque(slot) ^ entry) == hash) {
+            return entry;
+        }
+        return NO_ENTRY;
+    }
+
+    /**
+     * Store a result, keeping a deeper entry for the same position
+     */
+    public void store(long hash, int score, int depth, int flag, int move) {
+        int slot = (int) hash & mask;
+        long existing = probe(hash);
+        if (existing != NO_ENTRY && depth(existing) > depth) {
+            return;
+        }
+
+        long entry = (score & 0xFFFFFFFFL) | ((long) depth << 32) | ((long) flag << 40) | ((long) (move + 1) << 48);
+        entries.setOpaque(slot, entry);
+        keys.setOpaque(slot, hash ^ entry);
+    }
+
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 32) & 0xFF;
+    }
+
+    public static int flag(long entry) {
+        return (int) (entry >>> 40) & 0x3;
+    }
+
+    /**
+     * Best move stored with the entry, or -1
+     */
+    public static int move(long entry) {
+        return (int) (entry >>> 48) - 1;
+    }
+}
@@ -0,0 +1,61 @@
+package com.eric.GobangGameServer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Frame sizes must agree with the bytes actually written, in particular
+ * where a LINE frame's length prefix grows by a byte
+ */
+class BinaryProtocolTest {
+
+    @Test
+    void varintLengthMatchesBytesWritten() {
+        int[] values = {0, 0x7F, 0x80, 0x3FFF, 0x4000, 0x1FFFFF, 0x200000,
+                0xFFFFFFF, 0x10000000, Integer.MAX_VALUE};
+        for (int value : values) {
+            ByteBuffer out = ByteBuffer.allocate(8);
+            BinaryProtocol.putVarint(out, value);
+            assertEquals(out.position(), BinaryProtocol.varintLength(value), "varint length of " + value);
+        }
+    }
+
+    @Test
+    void lineFramesRoundTripAcrossThreeByteLengthBoundary() {
+        // Opcode plus text, on either side of the largest length a 3-byte prefix holds
+        for (int frameLength : new int[] {0x1FFFFF, 0x200000}) {
+            String line = "CHAT:" + "x".repeat(frameLength - 1 - "CHAT:".length());
+            String lines = line + "\n";
+
+            byte[] frame = BinaryProtocol.encodeLine(line);
+            assertEquals(BinaryProtocol.encodedLength(lines), frame.length, "encoded length of " + frameLength);
+
+            ByteBuffer out = ByteBuffer.allocate(BinaryProtocol.encodedLength(lines));
+            BinaryProtocol.encode(lines, out);
+            assertFalse(out.hasRemaining(), "frame fills the buffer sized for it");
+            assertEquals(ByteBuffer.wrap(frame), out.flip(), "encode and encodeLine agree");
+
+            ByteBuffer in = ByteBuffer.wrap(frame);
+            assertEquals(frameLength, getVarint(in), "length prefix");
+            assertEquals(frameLength, in.remaining(), "payload after the prefix");
+            byte[] payload = Arrays.copyOfRange(frame, in.position(), frame.length);
+            assertEquals(BinaryProtocol.LINE, payload[0], "opcode");
+            assertEquals(line, BinaryProtocol.toLine(payload, payload.length), "decoded line");
+        }
+    }
+
+    private static int getVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.eric.GobangGameServer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Hundreds of players send JOIN_SESSION for one waiting session at the same
+ * instant. Exactly one may be seated and every other joiner must be told the
+ * session is full, also while the host is leaving, and no session may outlive
+ * its players. Players are in-memory connections, so the race is between the
+ * command threads and the session workers only.
+ */
+class LobbyJoinRaceTest {
+    private static final int JOINERS = 500;
+    private static final int ROUNDS = 10;
+    private static final int WORKERS = 4;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final Executor DIRECT = Runnable::run;
+
+    private final ExecutorService threads = Executors.newFixedThreadPool(JOINERS + 1);
+
+    /**
+     * Records every line written to it
+     */
+    private static final class RecordingConnection implements Connection {
+        private final Queue<String> lines = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void write(CharSequence text) {
+            int start = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    lines.add(text.subSequence(start, i).toString());
+                    start = i + 1;
+                }
+            }
+        }
+
+        @Override
+        public Executor getWriteExecutor() {
+            return DIRECT;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return "in-memory";
+        }
+
+        int count(String prefix) {
+            int count = 0;
+            for (String line : lines) {
+                if (line.startsWith(prefix)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        String find(String prefix) {
+            for (String line : lines) {
+                if (line.startsWith(prefix)) {
+                    return line;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Replies to JOIN_SESSION; a joiner is sent nothing else but CONNECTED and lobby traffic
+         */
+        int joinReplies() {
+            return count("GAME_START:") + count("ERROR:");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void oneJoinerIsSeatedInline() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            joinRound(0);
+        }
+    }
+
+    @Test
+    void oneJoinerIsSeatedOnSessionWorkers() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            joinRound(WORKERS);
+        }
+    }
+
+    @Test
+    void hostLeavingRacesJoinersInline() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            leaveRound(0);
+        }
+    }
+
+    @Test
+    void hostLeavingRacesJoinersOnSessionWorkers() throws Exception {
+        for (int round = 0; round < ROUNDS; round++) {
+            leaveRound(WORKERS);
+        }
+    }
+
+    private void joinRound(int workers) throws Exception {
+        GameServer server = newServer(workers);
+        try {
+            RecordingConnection hostConnection = new RecordingConnection();
+            Player host = connect(server, "host", true, hostConnection);
+            String sessionId = createSession(server, host, hostConnection);
+
+            RecordingConnection[] connections = new RecordingConnection[JOINERS];
+            Player[] players = new Player[JOINERS];
+            race(server, sessionId, connections, players, null);
+            awaitReplies(connections);
+
+            int started = 0;
+            int full = 0;
+            for (RecordingConnection connection : connections) {
+                started += connection.count("GAME_START:");
+                full += connection.count("ERROR:Session is full");
+            }
+            assertEquals(1, started, "GAME_START sent to joiners");
+            assertEquals(JOINERS - 1, full, "'Session is full' sent to joiners");
+            assertEquals(1, hostConnection.count("GAME_START:"), "GAME_START sent to the host");
+
+            disconnectAll(server, host, players);
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * The host leaves while the joiners race; a joiner seated before the
+     * host left must be told its opponent is gone
+     */
+    private void leaveRound(int workers) throws Exception {
+        GameServer server = newServer(workers);
+        try {
+            RecordingConnection hostConnection = new RecordingConnection();
+            Player host = connect(server, "host", true, hostConnection);
+            String sessionId = createSession(server, host, hostConnection);
+
+            RecordingConnection[] connections = new RecordingConnection[JOINERS];
+            Player[] players = new Player[JOINERS];
+            race(server, sessionId, connections, players, () -> server.cleanupPlayer(host));
+            awaitReplies(connections);
+
+            RecordingConnection seated = null;
+            int started = 0;
+            for (RecordingConnection connection : connections) {
+                assertEquals(1, connection.joinReplies(), "replies to one JOIN_SESSION");
+                if (connection.count("GAME_START:") > 0) {
+                    seated = connection;
+                    started++;
+                }
+            }
+            assertTrue(started <= 1, started + " joiners were seated");
+            if (seated != null) {
+                RecordingConnection winner = seated;
+                await(() -> winner.count("OPPONENT_DISCONNECTED") > 0);
+                assertEquals(1, winner.count("OPPONENT_DISCONNECTED"), "seated joiner told the host left");
+            }
+
+            disconnectAll(server, host, players);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private GameServer newServer(int workers) throws Exception {
+        ServerConfig config = new ServerConfig(false);
+        config.setMaxPlayers(JOINERS + 2);
+        // Nothing may time out mid-round
+        config.getProperties().setProperty("server.heartbeat_interval", "0");
+        config.getProperties().setProperty("server.timeout", "0");
+        config.setSessionWorkers(workers);
+        if (workers == 0) {
+            return new GameServer(config);
+        }
+
+        // The workers start with the listener, so bring it up on a free port
+        // and wait for a real handshake, which is only served once it runs
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        config.setPort(port);
+        GameServer server = new GameServer(config);
+        Thread listener = new Thread(server::start, "join-race-listener");
+        listener.setDaemon(true);
+        listener.start();
+        awaitHandshake(port);
+        await(() -> server.getConnectedPlayerCount() == 0);
+        return server;
+    }
+
+    private void awaitHandshake(int port) throws Exception {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (true) {
+            try (Socket probe = new Socket("127.0.0.1", port)) {
+                PrintWriter out = new PrintWriter(probe.getOutputStream(), true, StandardCharsets.UTF_8);
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(probe.getInputStream(), StandardCharsets.UTF_8));
+                out.println("PLAYER_INFO:probe:false");
+                String reply = in.readLine();
+                assertTrue(reply != null && reply.startsWith("CONNECTED:"), "handshake reply " + reply);
+                return;
+            } catch (IOException e) {
+                if (System.nanoTime() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private Player connect(GameServer server, String name, boolean isHost, RecordingConnection connection) {
+        return server.completeHandshake(server.nextPlayerId(), connection, "PLAYER_INFO:" + name + ":" + isHost);
+    }
+
+    private String createSession(GameServer server, Player host, RecordingConnection connection)
+            throws InterruptedException {
+        server.processClientMessage(host, "CREATE_SESSION:race", new Command());
+        await(() -> connection.find("SESSION_CREATED:") != null);
+        return connection.find("SESSION_CREATED:").split(":")[1];
+    }
+
+    /**
+     * Connect the joiners, then release their JOIN_SESSION, and the optional
+     * extra task, at the same instant
+     */
+    private void race(GameServer server, String sessionId, RecordingConnection[] connections,
+                      Player[] players, Runnable alongside) throws Exception {
+        for (int i = 0; i < JOINERS; i++) {
+            connections[i] = new RecordingConnection();
+            players[i] = connect(server, "joiner" + i, false, connections[i]);
+        }
+
+        CountDownLatch ready = new CountDownLatch(JOINERS + (alongside != null ? 1 : 0));
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (Player player : players) {
+            tasks.add(threads.submit(() -> {
+                ready.countDown();
+                go.await();
+                server.processClientMessage(player, "JOIN_SESSION:" + sessionId, new Command());
+                return null;
+            }));
+        }
+        if (alongside != null) {
+            tasks.add(threads.submit(() -> {
+                ready.countDown();
+                go.await();
+                alongside.run();
+                return null;
+            }));
+        }
+
+        ready.await();
+        go.countDown();
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+    }
+
+    /**
+     * On the session workers the replies arrive after the commands return
+     */
+    private void awaitReplies(RecordingConnection[] connections) throws InterruptedException {
+        await(() -> {
+            for (RecordingConnection connection : connections) {
+                if (connection.joinReplies() == 0) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Disconnect everyone; departures are session events too, so no
+     * session may remain once the workers have run them
+     */
+    private void disconnectAll(GameServer server, Player host, Player[] players) throws InterruptedException {
+        if (host.isActive()) {
+            server.cleanupPlayer(host);
+        }
+        for (Player player : players) {
+            server.cleanupPlayer(player);
+        }
+
+        await(() -> server.getActiveSessionCount() == 0 && server.getWaitingSessionCount() == 0);
+        assertEquals(0, server.getActiveSessionCount(), "sessions left");
+        assertEquals(0, server.getWaitingSessionCount(), "waiting sessions left");
+        assertEquals(0, server.getConnectedPlayerCount(), "players left connected");
+    }
+
+    /**
+     * Poll until the condition holds or the timeout passes; the caller asserts
+     */
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.eric.GobangGameServer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The per-player byte budget is kept in encoded UTF-8 bytes, so multi-byte
+ * text cannot overrun it
+ */
+class OutboundQueueTest {
+    private static final int MAX_BYTES = 120;
+
+    /**
+     * Connection whose writes are held until run() is called, standing in for a client that stopped reading
+     */
+    private static final class StalledConnection implements Connection {
+        private final List<Runnable> pending = new ArrayList<>();
+        private final StringBuilder written = new StringBuilder();
+
+        @Override
+        public void write(CharSequence lines) {
+            written.append(lines);
+        }
+
+        @Override
+        public Executor getWriteExecutor() {
+            return pending::add;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return "in-memory";
+        }
+
+        void run() {
+            for (Runnable task : pending) {
+                task.run();
+            }
+            pending.clear();
+        }
+    }
+
+    private static OutboundQueue newQueue(Connection connection) {
+        return new OutboundQueue(connection, new OutboundPolicy(256, MAX_BYTES,
+                OutboundPolicy.LobbyAction.DROP, OutboundPolicy.GameAction.DROP));
+    }
+
+    @Test
+    void budgetCountsEncodedBytes() {
+        OutboundQueue queue = newQueue(new StalledConnection());
+        String ascii = "CHAT:" + "a".repeat(25);
+        assertEquals(OutboundQueue.Result.QUEUED, queue.offer(ascii), "30 ASCII chars");
+        assertEquals(ascii.length() + 1, queue.getQueuedBytes(), "queued bytes");
+
+        // 60 chars would fit beside the first line, but these are 115 bytes
+        String accented = "CHAT:" + "\u00e9".repeat(55);
+        assertEquals(OutboundQueue.Result.DROPPED, queue.offer(accented), "60 two-byte chars");
+        assertEquals(ascii.length() + 1, queue.getQueuedBytes(), "queued bytes after the drop");
+    }
+
+    @Test
+    void lobbyBudgetCountsEncodedBytes() {
+        OutboundQueue queue = newQueue(new StalledConnection());
+        String wide = "LOBBY:" + "\u20ac".repeat(40);
+        assertEquals(OutboundQueue.Result.DROPPED, queue.offerLobby(wide, wide), "127 bytes in 46 chars");
+        assertEquals(0, queue.getQueuedBytes(), "queued bytes");
+    }
+
+    @Test
+    void drainReturnsEncodedBytesToTheBudget() {
+        StalledConnection connection = new StalledConnection();
+        OutboundQueue queue = newQueue(connection);
+        queue.offer("CHAT:" + "\u20ac".repeat(10));
+        queue.offer("CHAT:" + "\u00e9".repeat(10));
+        assertEquals(36 + 26, queue.getQueuedBytes(), "queued bytes");
+
+        connection.run();
+        assertEquals(0, queue.getQueuedBytes(), "queued bytes after the flush");
+        assertEquals(0, queue.size(), "queued messages after the flush");
+        assertEquals("CHAT:" + "\u20ac".repeat(10) + "\nCHAT:" + "\u00e9".repeat(10) + "\n",
+                connection.written.toString(), "written text");
+    }
+}